@@ -31,6 +31,15 @@ plugins {
 
 dependencies {
     compileOnly("de.espirit.firstspirit:fs-isolated-runtime:$fsRuntimeVersion")
+
+    testImplementation("de.espirit.firstspirit:fs-isolated-runtime:$fsRuntimeVersion")
+    testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+    testImplementation("org.mockito:mockito-core:5.11.0")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
 
 firstSpiritModule {
@@ -17,9 +17,12 @@
  */
 package to.be.renamed.module.delete;
 
+import to.be.renamed.module.util.SessionElements;
+import to.be.renamed.module.util.WorkflowConstants;
+import to.be.renamed.module.util.WorkflowRunContext;
+
 import de.espirit.common.base.Logging;
 import de.espirit.firstspirit.access.BaseContext;
-import de.espirit.firstspirit.access.ReferenceEntry;
 import de.espirit.firstspirit.access.store.BasicElementInfo;
 import de.espirit.firstspirit.access.store.BasicInfo;
 import de.espirit.firstspirit.access.store.ElementDeletedException;
@@ -75,10 +78,18 @@ public class DeleteObject {
      * The workflowScriptContext from the workflow.
      */
     private final WorkflowScriptContext workflowScriptContext;
+    /**
+     * The values of the workflowScriptContext that do not change during the run.
+     */
+    private final WorkflowRunContext runContext;
     /**
      * The result of the delete operation, defaults to successful.
      */
     private boolean result = true;
+    /**
+     * The incoming references of the elements to check, created per delete.
+     */
+    private IncomingReferenceIndex incomingReferences;
     /**
      * The logging class to use.
      */
@@ -99,6 +110,10 @@ public class DeleteObject {
      * Name for variable that holds the objects to delete.
      */
     private static final String DEL_OBJECTS = "deleteObjects";
+    /**
+     * Number of locked elements after which the check stops if the workflow does not configure it.
+     */
+    private static final int DEFAULT_CONFLICT_LIMIT = 100;
     /**
      * List of objects that should be deleted.
      */
@@ -117,6 +132,7 @@ public class DeleteObject {
     DeleteObject(WorkflowScriptContext workflowScriptContext) {
 
         this.workflowScriptContext = workflowScriptContext;
+        runContext = new WorkflowRunContext(workflowScriptContext);
         // check if content2 object
         if (workflowScriptContext.getWorkflowable() instanceof final ContentWorkflowable contentWorkflowable) {
             entity = contentWorkflowable.getEntity();
@@ -139,11 +155,25 @@ public class DeleteObject {
         if (entity != null && !checkOnly) {
             deleteEntity();
         } else if (idProvider != null) {
+            // the test and the delete read the references again, so they never decide on an element that became referenced
+            incomingReferences = new IncomingReferenceIndex(runContext, true);
             deleteIDProvider(checkOnly);
+            runContext.logCacheStatistics();
         }
         return result;
     }
 
+    /**
+     * Gets the elements deleted and released by {@link #delete(boolean)}, the parents of the deleted elements are among the released ones.
+     *
+     * @return the deleted and released elements.
+     */
+    List<IDProvider> getChangedElements() {
+        final List<IDProvider> changedElements = new ArrayList<>(deleteObjects);
+        changedElements.addAll(releaseObjects);
+        return changedElements;
+    }
+
 
     /**
      * Convenience method to delete entities in current/release state.
@@ -199,24 +229,15 @@ public class DeleteObject {
         Map<String, List<IDProvider>> elementList = getDeleteElements();
         final List<IDProvider> listOfObjectsToDelete = elementList.get(DEL_OBJECTS);
         if (checkOnly) {
-            List<IDProvider> lockedElements = new ArrayList<>();
-            if (listOfObjectsToDelete != null) {
-                for (IDProvider idProv : listOfObjectsToDelete) {
-                    if (idProv.isLockedOnServer(true) && !idProv.isLocked()) {
-                        // element is locked on server from different session, delete not possible
-                        lockedElements.add(idProv);
-                        result = false;
-                    }
-                }
-            }
-            if (elementList.get(REL_OBJECTS) != null) {
-                for (IDProvider idProv : elementList.get(REL_OBJECTS)) {
-                    if (idProv.isLockedOnServer(true) && !idProv.isLocked()) {
-                        // element is locked on server from different session, delete not possible
-                        result = false;
-                        lockedElements.add(idProv);
-                    }
-                }
+            final int parallelism = runContext.getParallelism(WorkflowConstants.WF_LOCK_PROBE_PARALLELISM);
+            final int conflictLimit = runContext.getPositiveIntValue(WorkflowConstants.WF_LOCK_CONFLICT_LIMIT, DEFAULT_CONFLICT_LIMIT);
+            // every element is checked once, even if it is deleted and released
+            final LockProbe lockProbe = new LockProbe(parallelism, conflictLimit);
+            lockProbe.addAll(listOfObjectsToDelete);
+            lockProbe.addAll(elementList.get(REL_OBJECTS));
+            final List<IDProvider> lockedElements = lockProbe.probe();
+            if (!lockedElements.isEmpty()) {
+                result = false;
             }
             storeReferences(lockedElements);
         } else {
@@ -290,7 +311,7 @@ public class DeleteObject {
     // Needed in Tests
     protected DeleteOperation.Result deleteIgnoringReferences(final List<IDProvider> deleteObjects) {
 
-        OperationAgent operationAgent = workflowScriptContext.requireSpecialist(OperationAgent.TYPE);
+        OperationAgent operationAgent = runContext.getOperationAgent();
         DeleteOperation deleteOperation = operationAgent.getOperation(DeleteOperation.TYPE);
         DeleteOperation.Result deleteResult = null;
         try {
@@ -341,7 +362,7 @@ public class DeleteObject {
     }
 
     protected ReleaseOperation.ReleaseResult releaseWithAccessibilityAndNewOnly(final IDProvider idProv) {
-        OperationAgent operationAgent = workflowScriptContext.requireSpecialist(OperationAgent.TYPE);
+        OperationAgent operationAgent = runContext.getOperationAgent();
         ReleaseOperation releaseOperation = operationAgent.getOperation(ReleaseOperation.TYPE);
         ReleaseOperation.ReleaseResult releaseResult = null;
         try {
@@ -422,7 +443,7 @@ public class DeleteObject {
     private void regardPageStore() {
         IDProvider element = ((PageRef) idProvider).getPage();
         // only referenced in pageref that will be deleted
-        if (element.getIncomingReferences().length == 1) {
+        if (incomingReferences.getCount(element) == 1) {
             // add page
             deleteObjects.add(element);
             // delete PageFolder if last child is being deleted
@@ -447,9 +468,8 @@ public class DeleteObject {
         IDProvider element = childElement;
         while (element.getParent() != null) {
             element = element.getParent();
-            final ReferenceEntry[] incomingReferences = element.getIncomingReferences();
             // only use elements that are no longer in use
-            if (incomingReferences.length == 0) {
+            if (incomingReferences.getCount(element) == 0) {
                 Logging.logInfo("Checking parent element " + element.getUid() + " of child element " + childElement.getUid(), LOGGER);
                 Iterator<StoreElement> iter = element.getChildren(filter, false).iterator();
                 // folder has at least one element -- our child
@@ -473,23 +493,17 @@ public class DeleteObject {
 
 
     /**
-     * Convenience method to store uid names of objects that reference the object to be deleted in the workflow session.
+     * Convenience method to store the elements that prevent the delete in the workflow session. Only ids and store types are stored, uid
+     * and element type are resolved when the elements are shown.
      *
-     * @param lckObjects A list of IDProvider objects that reference the object to be deleted.
+     * @param lockedElements The elements locked by another session.
      */
-    private void storeReferences(List<IDProvider> lckObjects) {
-        List<List<String>> lockedObjects = new ArrayList<>();
-        for (IDProvider idProv : lckObjects) {
-            List<String> lockedObjectList = new ArrayList<>();
-            lockedObjectList.add(idProv.getElementType());
-            if (idProv.hasUid()) {
-                lockedObjectList.add(idProv.getUid());
-            } else {
-                lockedObjectList.add(idProv.getName());
-            }
-            lockedObjects.add(lockedObjectList);
+    private void storeReferences(List<IDProvider> lockedElements) {
+        SessionElements lockedObjects = new SessionElements();
+        for (IDProvider lockedElement : lockedElements) {
+            lockedObjects.add(lockedElement);
         }
-        // put referenced objects to session for further use
-        workflowScriptContext.getSession().put("wfLockedObjects", lockedObjects);
+        // put locked objects to session for further use
+        lockedObjects.write(workflowScriptContext, WorkflowConstants.WF_LOCKED_OBJECTS);
     }
 }
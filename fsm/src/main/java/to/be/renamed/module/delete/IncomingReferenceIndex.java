@@ -0,0 +1,127 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.delete;
+
+import to.be.renamed.module.util.ChangeEventBus;
+import to.be.renamed.module.util.WorkflowCacheService;
+import to.be.renamed.module.util.WorkflowRunContext;
+
+import de.espirit.firstspirit.access.ReferenceEntry;
+import de.espirit.firstspirit.access.store.IDProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The incoming references of the elements a delete workflow looks at. Most checks only need the number of references, which is answered
+ * from the ids of the referencing elements. The ids are kept by the cache service of the module across workflow steps, as long as the
+ * {@link ChangeEventBus} of the project reports no change and the entry has not expired. The references themselves are only read for
+ * elements that have references.
+ * <p>
+ * Only the steps that display the references use cached ids. The steps that check or delete elements use an index that refreshes, it reads
+ * the references from the store once per element and updates the cache, so these decisions never rely on cached data. Not thread-safe.
+ */
+class IncomingReferenceIndex {
+
+    private static final long[] NO_IDS = new long[0];
+    private static final ReferenceEntry[] NO_REFERENCES = new ReferenceEntry[0];
+
+    /**
+     * The values of the workflowScriptContext that do not change during the run.
+     */
+    private final WorkflowRunContext runContext;
+
+    /**
+     * True to read the references from the store instead of the cache.
+     */
+    private final boolean refresh;
+
+    /**
+     * The ids of the referencing elements by element id, read once per run.
+     */
+    private final Map<Long, long[]> referrerIds = new HashMap<>();
+
+    /**
+     * The references read from the store during this run by element id.
+     */
+    private final Map<Long, ReferenceEntry[]> references = new HashMap<>();
+
+    /**
+     * Constructor for IncomingReferenceIndex.
+     *
+     * @param runContext The values of the workflowScriptContext that do not change during the run.
+     * @param refresh    True to read the references from the store, e.g. before elements are checked or deleted.
+     */
+    IncomingReferenceIndex(final WorkflowRunContext runContext, final boolean refresh) {
+        this.runContext = runContext;
+        this.refresh = refresh;
+    }
+
+    /**
+     * Gets the number of references to an element.
+     *
+     * @param element The element.
+     * @return the number of incoming references.
+     */
+    int getCount(final IDProvider element) {
+        return getReferrerIds(element).length;
+    }
+
+    /**
+     * Gets the ids of the elements that reference an element. References that do not come from an element are kept as -1.
+     *
+     * @param element The element.
+     * @return the ids of the referencing elements. The array must not be modified.
+     */
+    long[] getReferrerIds(final IDProvider element) {
+        return referrerIds.computeIfAbsent(element.getId(), id -> {
+            final WorkflowCacheService cacheService = runContext.getCacheService();
+            if (cacheService == null) {
+                return read(element);
+            }
+            final long epoch = ChangeEventBus.forProject(element.getProject()).getSequence();
+            return cacheService.getIncomingReferenceIds(element, epoch, refresh, () -> read(element));
+        });
+    }
+
+    /**
+     * Gets the references to an element. They are only read from the store if the element has references.
+     *
+     * @param element The element.
+     * @return the incoming references.
+     */
+    ReferenceEntry[] getReferences(final IDProvider element) {
+        if (getCount(element) == 0) {
+            return NO_REFERENCES;
+        }
+        return references.computeIfAbsent(element.getId(), id -> element.getIncomingReferences());
+    }
+
+    private long[] read(final IDProvider element) {
+        final ReferenceEntry[] entries = element.getIncomingReferences();
+        if (entries == null || entries.length == 0) {
+            return NO_IDS;
+        }
+        references.put(element.getId(), entries);
+        final long[] ids = new long[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            ids[i] = entries[i].getReferencedObject() instanceof final IDProvider referrer ? referrer.getId() : -1;
+        }
+        return ids;
+    }
+}
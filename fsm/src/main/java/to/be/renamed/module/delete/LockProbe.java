@@ -0,0 +1,176 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.delete;
+
+import to.be.renamed.module.util.WorkflowRunContext;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.store.IDProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks if the elements of a delete are locked by another session. Every element is checked once, even if it is both deleted and released.
+ * The checks run on a bounded fork-join pool that only lives as long as the checks, and stop once the given number of conflicts is found.
+ * More than one thread shares the connection of the user and is only used if the workflow opts in, see
+ * {@link WorkflowRunContext#getParallelism(String)}.
+ */
+class LockProbe {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = LockProbe.class;
+
+    /**
+     * Number of elements checked by one task.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final int parallelism;
+    private final int conflictLimit;
+
+    /**
+     * The elements to check by id.
+     */
+    private final Map<Long, IDProvider> candidates = new LinkedHashMap<>();
+
+    /**
+     * Constructor for LockProbe.
+     *
+     * @param parallelism   The maximum number of threads, 1 checks all elements on the calling thread.
+     * @param conflictLimit The number of conflicts after which no further elements are checked.
+     */
+    LockProbe(final int parallelism, final int conflictLimit) {
+        this.parallelism = parallelism;
+        this.conflictLimit = conflictLimit;
+    }
+
+    /**
+     * Adds elements to check. Elements that were added before are not added again.
+     *
+     * @param elements The elements, may be null.
+     */
+    void addAll(final Collection<IDProvider> elements) {
+        if (elements != null) {
+            for (final IDProvider element : elements) {
+                if (element != null) {
+                    candidates.putIfAbsent(element.getId(), element);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the locks of the added elements.
+     *
+     * @return the elements locked by another session, in the order they were added. At most the conflict limit, more elements may be
+     *     locked if the list has this size.
+     */
+    List<IDProvider> probe() {
+        final List<IDProvider> elements = new ArrayList<>(candidates.values());
+        final AtomicInteger conflicts = new AtomicInteger();
+        final AtomicBoolean stoppedEarly = new AtomicBoolean();
+        final List<Callable<List<IDProvider>>> tasks = new ArrayList<>();
+        for (int from = 0; from < elements.size(); from += BATCH_SIZE) {
+            final List<IDProvider> batch = elements.subList(from, Math.min(from + BATCH_SIZE, elements.size()));
+            tasks.add(() -> probe(batch, conflicts, stoppedEarly));
+        }
+
+        final List<IDProvider> lockedElements = new ArrayList<>();
+        for (final List<IDProvider> batchConflicts : invokeAll(tasks)) {
+            lockedElements.addAll(batchConflicts);
+        }
+        if (stoppedEarly.get()) {
+            Logging.logInfo("Stopped lock check after " + conflictLimit + " locked elements", LOGGER);
+        }
+        return lockedElements.size() > conflictLimit ? lockedElements.subList(0, conflictLimit) : lockedElements;
+    }
+
+    private List<IDProvider> probe(final List<IDProvider> batch, final AtomicInteger conflicts, final AtomicBoolean stoppedEarly) {
+        List<IDProvider> lockedElements = Collections.emptyList();
+        for (final IDProvider element : batch) {
+            if (conflicts.get() >= conflictLimit) {
+                stoppedEarly.set(true);
+                break;
+            }
+            // element is locked on server from different session, delete not possible
+            if (element.isLockedOnServer(true) && !element.isLocked()) {
+                if (lockedElements.isEmpty()) {
+                    lockedElements = new ArrayList<>();
+                }
+                lockedElements.add(element);
+                conflicts.incrementAndGet();
+            }
+        }
+        return lockedElements;
+    }
+
+    private <T> List<T> invokeAll(final List<Callable<T>> tasks) {
+        final List<T> results = new ArrayList<>(tasks.size());
+        final int threads = Math.min(parallelism, tasks.size());
+        try {
+            if (threads < 2) {
+                for (final Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+                return results;
+            }
+            final ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (final Future<T> future : pool.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Lock check was interrupted", e);
+        } catch (final CancellationException e) {
+            throw new IllegalStateException("Lock check was cancelled", e);
+        } catch (final ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (final Exception e) {
+            throw rethrow(e);
+        }
+        return results;
+    }
+
+    private static RuntimeException rethrow(final Throwable cause) {
+        if (cause instanceof final RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof final Error error) {
+            throw error;
+        }
+        throw new IllegalStateException("Lock check failed", cause);
+    }
+}
@@ -18,8 +18,11 @@
 package to.be.renamed.module.delete;
 
 import to.be.renamed.module.util.AbstractWorkflowExecutable;
+import to.be.renamed.module.util.ChangeEventBus;
 import to.be.renamed.module.util.FsLocale;
+import to.be.renamed.module.util.MessageBundle;
 import to.be.renamed.module.util.WorkflowConstants;
+import to.be.renamed.module.util.WorkflowRunContext;
 import com.espirit.moddev.components.annotations.PublicComponent;
 
 import de.espirit.common.base.Logging;
@@ -74,12 +77,15 @@ public class WfCheckPrerequisitesExecutable extends AbstractWorkflowExecutable {
     @Override
     public Object execute(Map<String, Object> params) {
         WorkflowScriptContext workflowScriptContext = (WorkflowScriptContext) params.get(WorkflowConstants.CONTEXT);
+        final WorkflowRunContext runContext = new WorkflowRunContext(workflowScriptContext);
 
         final ResourceBundle bundle = loadResourceBundle(workflowScriptContext);
 
         //show warning dialog if prerequisites are not met and wfFolderCheckFail is not set
         if (getCustomAttribute(workflowScriptContext, "wfCheckPrerequisitesFail") == null) {
             StoreElement storeElement = workflowScriptContext.getElement();
+            // the element is in a workflow now
+            ChangeEventBus.publish((IDProvider) storeElement);
 
             // check if workflow is executed on a workflow and on itself
             boolean abortWorkflow =
@@ -94,7 +100,7 @@ public class WfCheckPrerequisitesExecutable extends AbstractWorkflowExecutable {
             if (!abortWorkflow && (hasNoChildren(storeElement, filter) || askUserToDeleteAnyway(workflowScriptContext, bundle))) {
 
                 //Addition for new media management since FS 5.2
-                abortIfCCAndImageWithReferences(workflowScriptContext);
+                abortIfCCAndImageWithReferences(workflowScriptContext, runContext);
 
                 String message = createMessage(workflowScriptContext, bundle, storeElement);
 
@@ -191,12 +197,13 @@ public class WfCheckPrerequisitesExecutable extends AbstractWorkflowExecutable {
         return dialogMessage;
     }
 
-    private void abortIfCCAndImageWithReferences(final WorkflowScriptContext workflowScriptContext) {
+    private void abortIfCCAndImageWithReferences(final WorkflowScriptContext workflowScriptContext, final WorkflowRunContext runContext) {
         if (workflowScriptContext.is(BaseContext.Env.WEBEDIT) && (workflowScriptContext.getWorkflowable() instanceof Media
                                                                   || workflowScriptContext.getWorkflowable() instanceof MediaFolder)) {
             StoreElement element = (StoreElement) workflowScriptContext.getWorkflowable();
-            final ReferenceEntry[] incomingReferences = element.getIncomingReferences();
-            final boolean abort = incomingReferences != null && incomingReferences.length > 0;
+            // read from the store, the dialog of the related objects reuses the result
+            final ReferenceEntry[] incomingReferences = new IncomingReferenceIndex(runContext, true).getReferences((IDProvider) element);
+            final boolean abort = incomingReferences.length > 0;
             if (abort) {
                 displayMessageWithReferences(workflowScriptContext, element, incomingReferences);
             }
@@ -206,7 +213,7 @@ public class WfCheckPrerequisitesExecutable extends AbstractWorkflowExecutable {
     private void displayMessageWithReferences(final WorkflowScriptContext workflowScriptContext, final StoreElement element,
                                               final ReferenceEntry... incomingReferences) {
         final FsLocale fsLocale = new FsLocale(workflowScriptContext);
-        ResourceBundle bundle = ResourceBundle.getBundle(WorkflowConstants.MESSAGES, fsLocale.get());
+        ResourceBundle bundle = MessageBundle.get(fsLocale.get());
         StringBuilder builder = new StringBuilder();
         for (ReferenceEntry referencedObject : incomingReferences) {
             if (referencedObject.getReferencedObject() instanceof final IDProvider storeElement) {
@@ -18,6 +18,7 @@
 package to.be.renamed.module.delete;
 
 import to.be.renamed.module.util.AbstractWorkflowExecutable;
+import to.be.renamed.module.util.ChangeEventBus;
 import to.be.renamed.module.util.WorkflowConstants;
 import com.espirit.moddev.components.annotations.PublicComponent;
 
@@ -48,13 +49,16 @@ public class WfDeleteExecutable extends AbstractWorkflowExecutable {
         WorkflowScriptContext workflowScriptContext = (WorkflowScriptContext) params.get(WorkflowConstants.CONTEXT);
         final ResourceBundle bundle = loadResourceBundle(workflowScriptContext);
         boolean deleteStatus = false;
+        final DeleteObject deleteObject = new DeleteObject(workflowScriptContext);
 
         // check if delete was successful (skip if wfDoFail is set by test case)
         if (isNotFailed(workflowScriptContext)) {
-            deleteStatus = new DeleteObject(workflowScriptContext).delete(false);
+            deleteStatus = deleteObject.delete(false);
         }
         // if delete was successful
         if (deleteStatus) {
+            // the deleted elements and the end of the workflow change the states the ContentCreator shows
+            ChangeEventBus.publishWithParents(deleteObject.getChangedElements());
             try {
                 workflowScriptContext.doTransition("trigger_finish");
                 Logging.logInfo("Workflow Delete successful.", LOGGER);
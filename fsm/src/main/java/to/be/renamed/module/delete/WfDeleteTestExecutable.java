@@ -19,12 +19,15 @@ package to.be.renamed.module.delete;
 
 import to.be.renamed.module.util.AbstractWorkflowExecutable;
 import to.be.renamed.module.util.Dialog;
+import to.be.renamed.module.util.SessionElements;
 import to.be.renamed.module.util.WorkflowConstants;
 import to.be.renamed.module.util.WorkflowSessionHelper;
 import com.espirit.moddev.components.annotations.PublicComponent;
 
 import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.store.IDProvider;
 import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
+import de.espirit.firstspirit.agency.StoreAgent;
 
 import java.util.List;
 import java.util.Map;
@@ -72,13 +75,8 @@ public class WfDeleteTestExecutable extends AbstractWorkflowExecutable {
             try {
                 // check test case or skip if wfDoTestFail is set
                 if (isNotFailedTest(workflowScriptContext)) {
-                    List<List> lockedObjects = WorkflowSessionHelper.readObjectFromSession(workflowScriptContext, "wfLockedObjects");
                     StringBuilder notReleased = new StringBuilder(bundle.getString("objectsLocked")).append(":\n\n");
-                    for (List lockedObject : lockedObjects) {
-                        String elementType = (String) lockedObject.get(0);
-                        String uid = (String) lockedObject.get(1);
-                        notReleased.append(uid).append(" (").append(elementType).append(")\n");
-                    }
+                    appendLockedObjects(workflowScriptContext, notReleased);
                     // show dialog
                     showDialog(workflowScriptContext, bundle.getString(bundle.getString("objectsLocked") + ":\n\n"), notReleased.toString());
                 }
@@ -97,4 +95,27 @@ public class WfDeleteTestExecutable extends AbstractWorkflowExecutable {
         return true;
     }
 
+    /*
+     * Appends uid (or name) and element type of the locked objects. Sessions of older versions store these values directly.
+     */
+    private static void appendLockedObjects(final WorkflowScriptContext workflowScriptContext, final StringBuilder notReleased) {
+        final Object lockedObjects = WorkflowSessionHelper.readObjectFromSession(workflowScriptContext, WorkflowConstants.WF_LOCKED_OBJECTS);
+        if (lockedObjects instanceof final List<?> lockedObjectList) {
+            for (Object lockedObject : lockedObjectList) {
+                String elementType = (String) ((List<?>) lockedObject).get(0);
+                String uid = (String) ((List<?>) lockedObject).get(1);
+                notReleased.append(uid).append(" (").append(elementType).append(")\n");
+            }
+            return;
+        }
+        final SessionElements elements = SessionElements.read(workflowScriptContext, WorkflowConstants.WF_LOCKED_OBJECTS);
+        final StoreAgent storeAgent = workflowScriptContext.requireSpecialist(StoreAgent.TYPE);
+        for (int i = 0; i < elements.getElementCount(); i++) {
+            final IDProvider element = elements.getElement(storeAgent, i);
+            if (element != null) {
+                notReleased.append(element.hasUid() ? element.getUid() : element.getName()).append(" (").append(element.getElementType())
+                    .append(")\n");
+            }
+        }
+    }
 }
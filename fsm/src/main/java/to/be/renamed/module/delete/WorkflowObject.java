@@ -18,8 +18,7 @@
 package to.be.renamed.module.delete;
 
 import to.be.renamed.module.util.FsException;
-import to.be.renamed.module.util.FsLocale;
-import to.be.renamed.module.util.WorkflowConstants;
+import to.be.renamed.module.util.WorkflowRunContext;
 
 import de.espirit.common.TypedFilter;
 import de.espirit.firstspirit.access.BaseContext;
@@ -81,6 +80,14 @@ public class WorkflowObject {
      * The ResourceBundle that contains language specific labels.
      */
     private final ResourceBundle bundle;
+    /**
+     * The values of the workflowScriptContext that do not change during the run.
+     */
+    private final WorkflowRunContext runContext;
+    /**
+     * The incoming references of the checked elements.
+     */
+    private final IncomingReferenceIndex incomingReferences;
 
     /**
      * Constructor for WorkflowObject.
@@ -89,8 +96,9 @@ public class WorkflowObject {
      */
     public WorkflowObject(WorkflowScriptContext workflowScriptContext) {
         this.workflowScriptContext = workflowScriptContext;
-        ResourceBundle.clearCache();
-        bundle = ResourceBundle.getBundle(WorkflowConstants.MESSAGES, new FsLocale(workflowScriptContext).get());
+        runContext = new WorkflowRunContext(workflowScriptContext);
+        incomingReferences = new IncomingReferenceIndex(runContext, false);
+        bundle = runContext.getBundle();
 
         if (workflowScriptContext.getWorkflowable() instanceof ContentWorkflowable) {
             content2 = ((ContentWorkflowable) workflowScriptContext.getWorkflowable()).getContent();
@@ -220,8 +228,10 @@ public class WorkflowObject {
     private List<IDProvider> getReferences(StoreElement storeElement) {
         List<IDProvider> references = new ArrayList<>();
 
-        // add outgoing references
-        for (ReferenceEntry referenceEntry : storeElement.getIncomingReferences()) {
+        // add incoming references, most elements (e.g. sections) have none
+        final ReferenceEntry[] entries = storeElement instanceof final IDProvider idProvider
+                                         ? incomingReferences.getReferences(idProvider) : storeElement.getIncomingReferences();
+        for (ReferenceEntry referenceEntry : entries) {
             references.add(referenceEntry.getReferencedElement());
         }
 
@@ -240,7 +250,7 @@ public class WorkflowObject {
             if (obj instanceof Section) {
                 Section<?> section = (Section) obj;
                 referencedObjects.add(
-                    section.getDisplayName(new FsLocale(workflowScriptContext).getLanguage()) + " (" + section.getName() + ", " + section.getId()
+                    section.getDisplayName(runContext.getLanguage()) + " (" + section.getName() + ", " + section.getId()
                     + ")");
             } else if (obj instanceof final Entity ent) {
                 referencedObjects.add(
@@ -249,11 +259,11 @@ public class WorkflowObject {
                 IDProvider idProv = (IDProvider) obj;
                 if (idProv.hasUid()) {
                     referencedObjects.add(
-                        idProv.getDisplayName(new FsLocale(workflowScriptContext).getLanguage()) + " (" + idProv.getUid() + ", " + idProv.getId()
+                        idProv.getDisplayName(runContext.getLanguage()) + " (" + idProv.getUid() + ", " + idProv.getId()
                         + ")");
                 } else {
                     referencedObjects.add(
-                        idProv.getDisplayName(new FsLocale(workflowScriptContext).getLanguage()) + " (" + idProv.getName() + ", " + idProv.getId()
+                        idProv.getDisplayName(runContext.getLanguage()) + " (" + idProv.getName() + ", " + idProv.getId()
                         + ")");
                 }
             }
@@ -0,0 +1,124 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import de.espirit.firstspirit.access.ReferenceEntry;
+import de.espirit.firstspirit.access.store.IDProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The parent chains of the elements of one workflow step. The chain of an element is read once and kept as an array of ids, nearest parent
+ * first. As the chain of an element extends the chain of its parent, every parent is read from the store only once, even for many
+ * siblings. The outgoing references of the parents are kept as well, so they are read once per parent and not once per descendant. The
+ * index may be used by several threads, in that case a chain is rarely read twice.
+ */
+class AncestorIndex {
+
+    private static final long[] NO_ANCESTORS = new long[0];
+
+    /**
+     * The ids of the parents by element id, nearest parent first.
+     */
+    private final Map<Long, long[]> ancestorIds = new ConcurrentHashMap<>();
+
+    /**
+     * The parents by id.
+     */
+    private final Map<Long, IDProvider> ancestors = new ConcurrentHashMap<>();
+
+    /**
+     * The outgoing references of the parents by id.
+     */
+    private final Map<Long, ReferenceEntry[]> outgoingReferences = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the ids of the parents of an element.
+     *
+     * @param element The element.
+     * @return the ids of the parents, nearest parent first. The array must not be modified.
+     */
+    long[] getAncestorIds(final IDProvider element) {
+        long[] ids = ancestorIds.get(element.getId());
+        if (ids == null) {
+            final IDProvider parent = element.getParent();
+            if (parent == null) {
+                ids = NO_ANCESTORS;
+            } else {
+                final long[] parentIds = getAncestorIds(parent);
+                ids = new long[parentIds.length + 1];
+                ids[0] = parent.getId();
+                System.arraycopy(parentIds, 0, ids, 1, parentIds.length);
+                ancestors.putIfAbsent(parent.getId(), parent);
+            }
+            ancestorIds.put(element.getId(), ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Checks if an element is a descendant of another element.
+     *
+     * @param element    The element.
+     * @param ancestorId The id of the possible ancestor.
+     * @return true if the element with the given id is one of the parents of the element.
+     */
+    boolean isDescendantOf(final IDProvider element, final long ancestorId) {
+        for (final long id : getAncestorIds(element)) {
+            if (id == ancestorId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the parents of an element.
+     *
+     * @param element The element.
+     * @return the parents, nearest parent first.
+     */
+    List<IDProvider> getAncestors(final IDProvider element) {
+        final long[] ids = getAncestorIds(element);
+        final List<IDProvider> result = new ArrayList<>(ids.length);
+        for (final long id : ids) {
+            result.add(ancestors.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the outgoing references of a parent, read once per parent.
+     *
+     * @param ancestor The parent.
+     * @return the outgoing references.
+     */
+    ReferenceEntry[] getOutgoingReferences(final IDProvider ancestor) {
+        final ReferenceEntry[] references = outgoingReferences.get(ancestor.getId());
+        if (references != null) {
+            return references;
+        }
+        // not read inside computeIfAbsent, so other threads are not blocked while the references are read
+        final ReferenceEntry[] read = ancestor.getOutgoingReferences();
+        final ReferenceEntry[] previous = outgoingReferences.putIfAbsent(ancestor.getId(), read);
+        return previous != null ? previous : read;
+    }
+}
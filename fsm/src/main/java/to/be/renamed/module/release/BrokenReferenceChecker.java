@@ -0,0 +1,117 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.ReferenceEntry;
+import de.espirit.firstspirit.access.store.IDProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks references for broken references. The outgoing references of a referenced element are scanned once per workflow step, no matter
+ * how many references point to the element. The usages of a broken reference are only read if they are logged.
+ */
+class BrokenReferenceChecker {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = BrokenReferenceChecker.class;
+
+    /**
+     * Whether a referenced element has broken outgoing references, by element id.
+     */
+    private final Map<Long, Boolean> brokenByElementId = new ConcurrentHashMap<>();
+
+    private final AtomicInteger scans = new AtomicInteger();
+    private final AtomicInteger savedScans = new AtomicInteger();
+
+    /**
+     * Checks if a reference is broken or points to an element with broken outgoing references.
+     *
+     * @param referenceEntry The reference to check.
+     * @return true if the reference or one of the outgoing references of the referenced element is broken.
+     */
+    boolean isBroken(final ReferenceEntry referenceEntry) {
+        Logging.logInfo("Check broken reference for " + referenceEntry, LOGGER);
+        if (referenceEntry.isBroken()) {
+            logBrokenReference(referenceEntry);
+            return true;
+        }
+        final IDProvider referencedElement = referenceEntry.getReferencedElement();
+        if (referencedElement == null) {
+            return false;
+        }
+        final Boolean broken = brokenByElementId.get(referencedElement.getId());
+        if (broken != null) {
+            savedScans.incrementAndGet();
+            if (broken) {
+                logBrokenReference(referenceEntry);
+            }
+            return broken;
+        }
+        final boolean scanned = hasBrokenOutgoingReferences(referencedElement);
+        brokenByElementId.put(referencedElement.getId(), scanned);
+        if (scanned) {
+            logBrokenReference(referenceEntry);
+        }
+        return scanned;
+    }
+
+    /**
+     * Gets the number of scans of outgoing references that were answered from the memo.
+     *
+     * @return the number of saved scans.
+     */
+    int getSavedScans() {
+        return savedScans.get();
+    }
+
+    /**
+     * Logs the number of scans and saved scans.
+     */
+    void logStatistics() {
+        Logging.logInfo("Broken references: scanned " + scans.get() + " element(s), saved " + savedScans.get() + " scan(s)", LOGGER);
+    }
+
+    private boolean hasBrokenOutgoingReferences(final IDProvider element) {
+        scans.incrementAndGet();
+        for (final ReferenceEntry reference : element.getOutgoingReferences()) {
+            Logging.logDebug("Check broken reference for " + reference, LOGGER);
+            if (reference.isBroken()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void logBrokenReference(final ReferenceEntry referenceEntry) {
+        Logging.logInfo("Reference broken: " + referenceEntry, LOGGER);
+        // reading the usages is expensive, they are only needed for the debug log
+        if (Logging.isDebugEnabled(LOGGER)) {
+            final StringBuilder usages = new StringBuilder("Current usages:");
+            for (final ReferenceEntry usage : referenceEntry.getUsages()) {
+                usages.append(" ").append(usage.getId());
+            }
+            Logging.logDebug(usages.toString(), LOGGER);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.store.Store;
+import de.espirit.firstspirit.access.store.contentstore.Content2;
+import de.espirit.firstspirit.access.store.contentstore.ContentStoreRoot;
+import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
+import de.espirit.firstspirit.agency.StoreAgent;
+import de.espirit.or.schema.Entity;
+import de.espirit.or.schema.EntityType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the data sources of the content store, grouped by the name of their entity type. The index is built lazily with a single walk
+ * over the content store, so resolving the data source of a referenced entity only has to look at the data sources of the same type.
+ * One index is meant to be used for a whole workflow step.
+ */
+class Content2Index {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = Content2Index.class;
+
+    /**
+     * The workflowScriptContext from the workflow.
+     */
+    private final WorkflowScriptContext workflowScriptContext;
+
+    /**
+     * The data sources by entity type name, null until the first lookup.
+     */
+    private Map<String, List<Content2>> content2ByEntityType;
+
+    /**
+     * Constructor for Content2Index.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     */
+    Content2Index(final WorkflowScriptContext workflowScriptContext) {
+        this.workflowScriptContext = workflowScriptContext;
+    }
+
+    /**
+     * Gets the first data source (in content store order) that contains the given entity.
+     *
+     * @param entity The entity to look up.
+     * @return the data source or null if no data source contains the entity.
+     */
+    Content2 getContent2ForEntity(final Entity entity) {
+        final EntityType entityType = entity.getEntityType();
+        for (final Content2 candidate : getCandidates(entityType)) {
+            if (candidate.getEntityType().equals(entityType) && candidate.getEntity(entity.getKeyValue()) != null) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private List<Content2> getCandidates(final EntityType entityType) {
+        if (content2ByEntityType == null) {
+            content2ByEntityType = buildIndex();
+        }
+        return content2ByEntityType.getOrDefault(entityType.getName(), Collections.emptyList());
+    }
+
+    private Map<String, List<Content2>> buildIndex() {
+        final StoreAgent storeAgent = workflowScriptContext.requireSpecialist(StoreAgent.TYPE);
+        final ContentStoreRoot contentStoreRoot = (ContentStoreRoot) storeAgent.getStore(Store.Type.CONTENTSTORE);
+
+        final Map<String, List<Content2>> index = new HashMap<>();
+        int count = 0;
+        for (final Content2 content2 : contentStoreRoot.getChildren(Content2.class, true)) {
+            index.computeIfAbsent(content2.getEntityType().getName(), name -> new ArrayList<>(1)).add(content2);
+            count++;
+        }
+        Logging.logDebug("Indexed " + count + " data sources with " + index.size() + " entity types", LOGGER);
+        return index;
+    }
+}
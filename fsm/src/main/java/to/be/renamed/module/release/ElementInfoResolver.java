@@ -0,0 +1,111 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import to.be.renamed.module.util.WorkflowRunContext;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.store.BasicElementInfo;
+import de.espirit.firstspirit.access.store.BasicInfo;
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.Store;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Resolves the elements reported by a release operation to the lines of an error dialog: display name, uid and id. The elements are looked
+ * up directly in their store, the query agent is only used if the store of an element is unknown. Every element is resolved once per
+ * workflow step.
+ */
+class ElementInfoResolver {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = ElementInfoResolver.class;
+
+    /**
+     * The values of the workflowScriptContext that do not change during the run.
+     */
+    private final WorkflowRunContext runContext;
+
+    /**
+     * The resolved lines by node id.
+     */
+    private final Map<Long, String> lines = new HashMap<>();
+
+    /**
+     * Constructor for ElementInfoResolver.
+     *
+     * @param runContext The values of the workflowScriptContext that do not change during the run.
+     */
+    ElementInfoResolver(final WorkflowRunContext runContext) {
+        this.runContext = runContext;
+    }
+
+    /**
+     * Appends the lines of the given elements to an error message.
+     *
+     * @param infoList The elements to describe.
+     * @param errorMsg The error message to append to.
+     */
+    void appendTo(final Iterable<BasicInfo> infoList, final StringBuilder errorMsg) {
+        for (final BasicInfo info : infoList) {
+            long nodeId = 0;
+            Store.Type storeType = null;
+            if (!info.isEntity()) {
+                final BasicElementInfo basicElementInfo = (BasicElementInfo) info;
+                nodeId = basicElementInfo.getNodeId();
+                storeType = basicElementInfo.getStoreType();
+            }
+            Logging.logInfo("  id:" + nodeId, LOGGER);
+            errorMsg.append(getLine(nodeId, storeType));
+        }
+    }
+
+    /**
+     * Gets the line of an element.
+     *
+     * @param nodeId    The id of the element.
+     * @param storeType The store of the element or null if it is unknown.
+     * @return the display name, uid and id of the element or an empty string if the element has no uid or does not exist.
+     */
+    synchronized String getLine(final long nodeId, final Store.Type storeType) {
+        String line = lines.get(nodeId);
+        if (line == null) {
+            final IDProvider element = storeType != null ? runContext.getStoreAgent().getStore(storeType).getStoreElement(nodeId) : query(nodeId);
+            if (element == null) {
+                Logging.logError("Found no element with id " + nodeId, LOGGER);
+                line = "";
+            } else if (element.hasUid()) {
+                line = element.getDisplayName(runContext.getLanguage()) + " (" + element.getUid() + ", " + element.getId() + ")\n";
+            } else {
+                line = "";
+            }
+            lines.put(nodeId, line);
+        }
+        return line;
+    }
+
+    private IDProvider query(final long nodeId) {
+        final Iterator<IDProvider> hits = runContext.getQueryAgent().answer("fs.id=" + nodeId, null).iterator();
+        return hits.hasNext() ? hits.next() : null;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import to.be.renamed.module.util.WorkflowRunContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the tasks of a workflow step on a bounded fork-join pool that only lives as long as the tasks. The tasks share the connection of the
+ * user, so more than one thread is only used if the workflow opts in, see {@link WorkflowRunContext#getParallelism(String)}.
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Runs the given tasks and waits until they are finished or the time limit is reached. With less than two threads the tasks run on the
+     * calling thread.
+     *
+     * @param tasks       The tasks to run.
+     * @param parallelism The maximum number of threads.
+     * @param timeLimit   The time limit in milliseconds, 0 for no limit.
+     * @param <T>         The result type of the tasks, the tasks must not return null.
+     * @return the results in the order of the tasks, null for tasks that did not finish within the time limit.
+     */
+    static <T> List<T> invokeAll(final List<Callable<T>> tasks, final int parallelism, final long timeLimit) {
+        final List<T> results = new ArrayList<>(tasks.size());
+        final int threads = Math.min(parallelism, tasks.size());
+        if (threads < 2) {
+            final long deadline = System.currentTimeMillis() + timeLimit;
+            for (final Callable<T> task : tasks) {
+                results.add(timeLimit > 0 && System.currentTimeMillis() > deadline ? null : call(task));
+            }
+            return results;
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            final List<Future<T>> futures = timeLimit > 0 ? pool.invokeAll(tasks, timeLimit, TimeUnit.MILLISECONDS) : pool.invokeAll(tasks);
+            for (final Future<T> future : futures) {
+                results.add(future.isCancelled() ? null : future.get());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel tasks were interrupted", e);
+        } catch (final CancellationException e) {
+            throw new IllegalStateException("Parallel tasks were cancelled", e);
+        } catch (final ExecutionException e) {
+            throw rethrow(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    private static <T> T call(final Callable<T> task) {
+        try {
+            return task.call();
+        } catch (final Exception e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(final Throwable cause) {
+        if (cause instanceof final RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof final Error error) {
+            throw error;
+        }
+        throw new IllegalStateException("Parallel task failed", cause);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import to.be.renamed.module.util.IdSet;
+import to.be.renamed.module.util.SessionElements;
+import to.be.renamed.module.util.WorkflowConstants;
+
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
+import de.espirit.firstspirit.agency.StoreAgent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The children of a recursive release as stored in the workflow session. Membership checks only use the ids, the elements themselves are
+ * resolved once, on first access.
+ */
+class RecursiveChildren {
+
+    /**
+     * The workflowScriptContext from the workflow.
+     */
+    private final WorkflowScriptContext workflowScriptContext;
+
+    /**
+     * The children ids and store types from the workflow session.
+     */
+    private final SessionElements children;
+
+    /**
+     * The ids of the children.
+     */
+    private final IdSet ids;
+
+    /**
+     * The resolved children, null until the first access.
+     */
+    private List<IDProvider> elements;
+
+    private RecursiveChildren(final WorkflowScriptContext workflowScriptContext, final SessionElements children) {
+        this.workflowScriptContext = workflowScriptContext;
+        this.children = children;
+        ids = new IdSet(children.getElementCount());
+        for (int i = 0; i < children.getElementCount(); i++) {
+            ids.add(children.getId(i));
+        }
+    }
+
+    /**
+     * Reads the children of the recursive release from the workflow session.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     * @return the children, empty if the session contains none.
+     */
+    static RecursiveChildren fromSession(final WorkflowScriptContext workflowScriptContext) {
+        return new RecursiveChildren(workflowScriptContext, SessionElements.read(workflowScriptContext, WorkflowConstants.WF_RECURSIVE_CHILDREN));
+    }
+
+    /**
+     * Checks if the given element is one of the children.
+     *
+     * @param idProvider The element to check, may be null.
+     * @return true if the element is a child of the recursive release.
+     */
+    boolean contains(final IDProvider idProvider) {
+        return idProvider != null && ids.contains(idProvider.getId());
+    }
+
+    /**
+     * Checks if there are no children.
+     *
+     * @return true if there are no children.
+     */
+    boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    /**
+     * Gets the number of children.
+     *
+     * @return the number of children.
+     */
+    int size() {
+        return children.getElementCount();
+    }
+
+    /**
+     * Gets the ids of the children without resolving them.
+     *
+     * @return a new array with the ids, in the order of the children.
+     */
+    long[] getIds() {
+        final long[] childIds = new long[children.getElementCount()];
+        for (int i = 0; i < childIds.length; i++) {
+            childIds[i] = children.getId(i);
+        }
+        return childIds;
+    }
+
+    /**
+     * Computes a fingerprint of the children ids. Two runs with the same fingerprint release the same children in the same order.
+     *
+     * @return the fingerprint.
+     */
+    long fingerprint() {
+        long fingerprint = children.getElementCount();
+        for (int i = 0; i < children.getElementCount(); i++) {
+            fingerprint = fingerprint * 31 + children.getId(i);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Gets the resolved children. Children that do not exist anymore are left out.
+     *
+     * @return an unmodifiable list of the children.
+     */
+    List<IDProvider> getElements() {
+        if (elements == null) {
+            elements = Collections.unmodifiableList(getElements(0, children.getElementCount()));
+        }
+        return elements;
+    }
+
+    /**
+     * Resolves a range of the children. The resolved elements are not kept, so a caller that walks the children window by window only holds
+     * the elements of one window. Children that were deleted since they were collected are logged and left out, so the list may be shorter
+     * than the range; callers count windows by the range, not by the list size.
+     *
+     * @param from The index of the first child, inclusive.
+     * @param to   The index of the last child, exclusive.
+     * @return a new list with the existing children of the range.
+     */
+    List<IDProvider> getElements(final int from, final int to) {
+        final List<IDProvider> resolved = new ArrayList<>(Math.max(to - from, 0));
+        if (from < to) {
+            final StoreAgent storeAgent = workflowScriptContext.requireSpecialist(StoreAgent.TYPE);
+            for (int i = from; i < to; i++) {
+                final IDProvider child = children.getElement(storeAgent, i);
+                if (child != null) {
+                    resolved.add(child);
+                }
+            }
+        }
+        return resolved;
+    }
+}
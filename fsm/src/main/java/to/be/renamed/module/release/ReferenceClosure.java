@@ -0,0 +1,84 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.Language;
+import de.espirit.firstspirit.access.store.IDProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Collects the referenced objects of many release elements on a bounded fork-join pool. Every worker thread uses its own
+ * {@link WorkflowObject}, so the collections only share the thread safe state of the {@link ReleaseRun}. The collected objects are returned
+ * in the order of the elements, so merging them gives the same result as collecting the elements one after another.
+ */
+class ReferenceClosure {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = ReferenceClosure.class;
+
+    /**
+     * The state shared with the other objects of the workflow step.
+     */
+    private final ReleaseRun releaseRun;
+
+    /**
+     * Constructor for ReferenceClosure.
+     *
+     * @param releaseRun The state of the workflow step.
+     */
+    ReferenceClosure(final ReleaseRun releaseRun) {
+        this.releaseRun = releaseRun;
+    }
+
+    /**
+     * Collects the referenced objects of the given elements.
+     *
+     * @param elements           The elements to collect the references of.
+     * @param releaseWithMedia   Determines if media references should also be collected.
+     * @param releaseRecursively Whether the release is recursive.
+     * @param includeChildren    Whether to include the references of the children of site store folders.
+     * @param languages          The languages to consider.
+     * @return the collected IDProviders and ReferenceEntries, one set per element in the order of the elements.
+     */
+    List<Set<Object>> collect(final List<IDProvider> elements, final boolean releaseWithMedia, final boolean releaseRecursively,
+                              final boolean includeChildren, final Language[] languages) {
+        final long start = System.currentTimeMillis();
+        final ThreadLocal<WorkflowObject> workflowObjects = ThreadLocal.withInitial(() -> new WorkflowObject(releaseRun));
+        final List<Callable<Set<Object>>> tasks = new ArrayList<>(elements.size());
+        for (final IDProvider element : elements) {
+            tasks.add(() -> collect(workflowObjects.get(), element, releaseWithMedia, releaseRecursively, includeChildren, languages));
+        }
+        final List<Set<Object>> results = ParallelTasks.invokeAll(tasks, releaseRun.getParallelism(), 0);
+        Logging.logInfo("Collected references of " + elements.size() + " element(s) in " + (System.currentTimeMillis() - start) + " ms", LOGGER);
+        return results;
+    }
+
+    private static Set<Object> collect(final WorkflowObject workflowObject, final IDProvider element, final boolean releaseWithMedia,
+                                       final boolean releaseRecursively, final boolean includeChildren, final Language[] languages) {
+        workflowObject.setRecursively(releaseRecursively);
+        workflowObject.setStoreElement(element);
+        return workflowObject.getRefObjectsFromStoreElement(releaseWithMedia, includeChildren, languages);
+    }
+}
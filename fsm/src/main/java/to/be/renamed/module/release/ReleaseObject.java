@@ -18,40 +18,23 @@
 package to.be.renamed.module.release;
 
 import to.be.renamed.module.util.Dialog;
-import to.be.renamed.module.util.FormEvaluator;
 import to.be.renamed.module.util.FormValidator;
-import to.be.renamed.module.util.FsLocale;
-import to.be.renamed.module.util.StoreComparator;
+import to.be.renamed.module.util.IdSet;
 import to.be.renamed.module.util.StoreUtil;
 import to.be.renamed.module.util.WorkflowConstants;
 
 import de.espirit.common.base.Logging;
 import de.espirit.firstspirit.access.Language;
-import de.espirit.firstspirit.access.ReferenceEntry;
 import de.espirit.firstspirit.access.store.BasicElementInfo;
 import de.espirit.firstspirit.access.store.BasicInfo;
 import de.espirit.firstspirit.access.store.IDProvider;
 import de.espirit.firstspirit.access.store.ReleaseProblem;
 import de.espirit.firstspirit.access.store.contentstore.Content2;
-import de.espirit.firstspirit.access.store.contentstore.ContentFolder;
 import de.espirit.firstspirit.access.store.contentstore.ContentWorkflowable;
-import de.espirit.firstspirit.access.store.contentstore.Dataset;
-import de.espirit.firstspirit.access.store.globalstore.GCAFolder;
-import de.espirit.firstspirit.access.store.globalstore.GCAPage;
-import de.espirit.firstspirit.access.store.globalstore.ProjectProperties;
-import de.espirit.firstspirit.access.store.mediastore.Media;
-import de.espirit.firstspirit.access.store.mediastore.MediaFolder;
-import de.espirit.firstspirit.access.store.pagestore.Page;
-import de.espirit.firstspirit.access.store.pagestore.PageFolder;
 import de.espirit.firstspirit.access.store.pagestore.Section;
-import de.espirit.firstspirit.access.store.sitestore.DocumentGroup;
 import de.espirit.firstspirit.access.store.sitestore.PageRef;
-import de.espirit.firstspirit.access.store.sitestore.PageRefFolder;
-import de.espirit.firstspirit.access.store.sitestore.SiteStoreRoot;
-import de.espirit.firstspirit.access.store.templatestore.TemplateStoreElement;
 import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
 import de.espirit.firstspirit.agency.OperationAgent;
-import de.espirit.firstspirit.agency.QueryAgent;
 import de.espirit.firstspirit.store.operations.ReleaseOperation;
 import de.espirit.or.Session;
 import de.espirit.or.schema.Entity;
@@ -59,10 +42,14 @@ import de.espirit.or.schema.Entity;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
  * This class is used to release IDProvider/Entity objects.
@@ -86,21 +73,29 @@ public class ReleaseObject {
      */
     private final WorkflowScriptContext workflowScriptContext;
     /**
-     * The Objects to be released.
+     * The state shared with the other objects of the workflow step.
      */
-    private List<Object> releaseObjects;
+    private final ReleaseRun releaseRun;
+    /**
+     * The elements to be released.
+     */
+    private ReleasePlan releasePlan;
     /**
      * The ResourceBundle that contains language specific labels.
      */
     private final ResourceBundle bundle;
     /**
-     * The List of validation Errors.
+     * The List of validation Errors, in the order of the validated elements.
      */
-    private final Set<String> validationErrorList = new HashSet<>();
+    private final Set<String> validationErrorList = new LinkedHashSet<>();
     /**
      * The logging class to use.
      */
     public static final Class<?> LOGGER = ReleaseObject.class;
+    /**
+     * The number of elements released with one release operation, if the workflow does not define it.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 100;
 
     /**
      * Constructor for ReleaseObject with an Entity.
@@ -109,25 +104,25 @@ public class ReleaseObject {
      * @param releaseEntity         The Entity that is to be released.
      */
     ReleaseObject(final WorkflowScriptContext workflowScriptContext, final Entity releaseEntity) {
-        this(workflowScriptContext);
+        this(new ReleaseRun(workflowScriptContext));
         this.entity = releaseEntity;
     }
 
     /**
-     * Constructor for ReleaseObject with a list of Objects.
+     * Constructor for ReleaseObject with a release plan.
      *
-     * @param workflowScriptContext The workflowScriptContext from the workflow.
-     * @param releaseObjects        The list of objects that are to be released.
+     * @param releaseRun  The state of the workflow step.
+     * @param releasePlan The plan with the elements that are to be released.
      */
-    ReleaseObject(final WorkflowScriptContext workflowScriptContext, final List<Object> releaseObjects) {
-        this(workflowScriptContext);
-        this.releaseObjects = new LinkedList<>(releaseObjects);
+    ReleaseObject(final ReleaseRun releaseRun, final ReleasePlan releasePlan) {
+        this(releaseRun);
+        this.releasePlan = releasePlan;
     }
 
-    private ReleaseObject(final WorkflowScriptContext workflowScriptContext) {
-        this.workflowScriptContext = workflowScriptContext;
-        ResourceBundle.clearCache();
-        bundle = ResourceBundle.getBundle(WorkflowConstants.MESSAGES, new FsLocale(workflowScriptContext).get());
+    private ReleaseObject(final ReleaseRun releaseRun) {
+        this.releaseRun = releaseRun;
+        this.workflowScriptContext = releaseRun.getWorkflowScriptContext();
+        bundle = releaseRun.getRunContext().getBundle();
         dialog = new Dialog(workflowScriptContext);
     }
 
@@ -184,15 +179,7 @@ public class ReleaseObject {
     }
 
     private void createErrorMessage(Set<BasicInfo> infoList, StringBuilder errorMsg) {
-        for (final BasicInfo missing : infoList) {
-            long missingId = 0;
-            if (!missing.isEntity()) {
-                BasicElementInfo basicElementInfo = (BasicElementInfo) missing;
-                missingId = basicElementInfo.getNodeId();
-            }
-            Logging.logInfo("  id:" + missingId, LOGGER);
-            errorMsg.append(createErrorString(missingId));
-        }
+        releaseRun.getElementInfoResolver().appendTo(infoList, errorMsg);
     }
 
     private void showLockedElementsIfAny(final Set<BasicInfo> lockedList) {
@@ -208,72 +195,76 @@ public class ReleaseObject {
                                         final boolean releaseRecursively, final Language[] languages) {
         boolean result = true;
 
-        OperationAgent operationAgent = workflowScriptContext.requireSpecialist(OperationAgent.TYPE);
-        ReleaseOperation releaseOperation;
-        ReleaseOperation.ReleaseResult releaseResult;
-
         final List<IDProvider> customReleaseElements = getCustomReleaseElements(WorkflowConstants.RELEASE_PAGEREF_ELEMENTS);
 
+        if (releasePlan.hasBrokenReferences()) {
+            Logging.logError("Release aborted, the release contains references without a referenced element. Broken Reference?", LOGGER);
+            return false;
+        }
+
+        // the statuses of the release status cache are read once per run, so they form a snapshot of the elements before the release
+        final boolean incremental = releaseRecursively && releaseRun.getRunContext().getFlagValue(WorkflowConstants.WF_INCREMENTAL_RELEASE);
+        // an incremental release releases every changed element on its own instead of the subtree of the start element
+        final boolean releaseSubtrees = releaseRecursively && !incremental;
+        int skippedElements = 0;
+
         try {
-            releaseObjects.sort(new StoreComparator());
-            for (final Object object : releaseObjects) {
-                if (!(object instanceof ReferenceEntry && ((ReferenceEntry) object).getReferencedObject() instanceof Entity)) {
-                    IDProvider currentObjForRelease = getObjectAsIDProvider(object);
-                    if (isReleasable(currentObjForRelease, customReleaseElements)) {
-                        if (workflowScriptContext.getProject().getId() == currentObjForRelease.getProject().getId()) {
-                            Logging.logInfo("Prepare " + (checkOnly ? "test " : "") + "release for: " + currentObjForRelease.getId(), LOGGER);
-                            // only release items that are not yet released
-                            int
-                                releaseStatus =
-                                languages.length > 0 ? currentObjForRelease.getReleaseStatus(languages) : currentObjForRelease.getReleaseStatus();
-                            if (shouldBeReleased(releaseStatus, releaseRecursively, currentObjForRelease)) {
-                                // check rules
-                                final String validationError = new FormValidator(workflowScriptContext).isValid(currentObjForRelease);
-                                if (validationError != null) {
-                                    validationErrorList.add(validationError);
-                                }
-                                // check rules for sections of pages (as checkrules is not recursive)
-                                if (isPage(currentObjForRelease)) {
-                                    for (final Section<?> section : currentObjForRelease.getChildren(Section.class, true)) {
-                                        final String validationErrorsSection = new FormValidator(workflowScriptContext).isValid(section);
-                                        if (validationErrorsSection != null) {
-                                            validationErrorList.add(validationErrorsSection);
-                                        }
-                                    }
-                                }
-                                if (releaseRecursively && isChildrenOf(currentObjForRelease, workflowScriptContext.getElement())) {
-                                    continue;
-                                }
-                                if (validationErrorList.isEmpty()) {
-                                    // check release
-                                    if (currentObjForRelease == workflowScriptContext.getElement()) {
-                                        // unlock element that runs the workflow
-                                        currentObjForRelease.setLock(false, false);
-                                    }
-
-                                    releaseOperation = operationAgent.getOperation(ReleaseOperation.TYPE);
-
-                                    releaseOperation.checkOnly(checkOnly);
-                                    if (languages.length > 0) {
-                                        releaseOperation.languages(languages);
-                                        Logging.logInfo("Releasing languages: " + Arrays.toString(languages), getClass());
-                                    } else {
-                                        Logging.logInfo("Releasing all languages.", getClass());
-                                    }
-
-                                    releaseResult = performRelease(currentObjForRelease, checkOnly, releaseOperation, releaseRecursively);
-                                    result = handleResult(lockedList, permList, releaseResult, currentObjForRelease);
-                                    if (currentObjForRelease.equals(workflowScriptContext.getElement())) {
-                                        currentObjForRelease.setLock(true, false);
-                                    }
-                                } else {
-                                    Logging.logError("Validation failure during release!", LOGGER);
-                                    result = false;
-                                }
+            // check rules of all elements before anything is released
+            final List<List<ReleasePlan.Entry>> releaseGroups = new ArrayList<>();
+            final List<ReleasePlan.Entry> validatedEntries = new ArrayList<>();
+            for (final List<ReleasePlan.Entry> group : ReleaseOrder.of(releasePlan, releaseRun.getAncestorIndex()).getGroups()) {
+                final List<ReleasePlan.Entry> releaseGroup = new ArrayList<>();
+                for (final ReleasePlan.Entry entry : group) {
+                    final IDProvider currentObjForRelease = entry.element();
+                    if (isReleasable(currentObjForRelease, entry.kind(), customReleaseElements)
+                        && workflowScriptContext.getProject().getId() == currentObjForRelease.getProject().getId()) {
+                        Logging.logInfo("Prepare " + (checkOnly ? "test " : "") + "release for: " + currentObjForRelease.getId(), LOGGER);
+                        // only release items that are not yet released
+                        int releaseStatus = releaseRun.getReleaseStatusCache().getReleaseStatus(currentObjForRelease, languages);
+                        if (incremental && isUnchanged(releaseStatus, currentObjForRelease)) {
+                            skippedElements++;
+                        } else if (shouldBeReleased(releaseStatus, releaseRecursively, entry.kind())) {
+                            validatedEntries.add(entry);
+                            if (!releaseSubtrees || !isChildrenOf(currentObjForRelease, workflowScriptContext.getElement())) {
+                                releaseGroup.add(entry);
                             }
                         }
                     }
-                    currentObjForRelease.refresh();
+                }
+                if (!releaseGroup.isEmpty()) {
+                    releaseGroups.add(releaseGroup);
+                }
+            }
+            if (incremental) {
+                Logging.logInfo("Incremental release skipped " + skippedElements + " released element(s)", LOGGER);
+            }
+            validate(validatedEntries);
+            if (!validationErrorList.isEmpty()) {
+                Logging.logError("Validation failure during release!", LOGGER);
+                return false;
+            }
+
+            final OperationAgent operationAgent = releaseRun.getRunContext().getOperationAgent();
+            final int batchSize =
+                releaseRun.getRunContext().getPositiveIntValue(WorkflowConstants.WF_RELEASE_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+            for (final List<ReleasePlan.Entry> releaseGroup : releaseGroups) {
+                // the elements of a group do not depend on each other, so all elements with the same settings are released together
+                final Map<ReleaseSettings, List<IDProvider>> batches = new LinkedHashMap<>();
+                for (final ReleasePlan.Entry entry : releaseGroup) {
+                    final ReleaseSettings releaseSettings = ReleaseSettings.of(entry.kind(), checkOnly, releaseSubtrees);
+                    if (releaseSettings == null) {
+                        Logging.logError("Release of " + entry.element() + " is not supported", LOGGER);
+                        result = false;
+                    } else {
+                        batches.computeIfAbsent(releaseSettings, settings -> new ArrayList<>()).add(entry.element());
+                    }
+                }
+                for (final Map.Entry<ReleaseSettings, List<IDProvider>> batch : batches.entrySet()) {
+                    final List<IDProvider> elements = batch.getValue();
+                    for (int from = 0; from < elements.size(); from += batchSize) {
+                        final List<IDProvider> releaseBatch = elements.subList(from, Math.min(from + batchSize, elements.size()));
+                        result &= releaseBatch(operationAgent, batch.getKey(), releaseBatch, checkOnly, languages, lockedList, permList);
+                    }
                 }
             }
         } catch (final Exception e) {
@@ -283,164 +274,129 @@ public class ReleaseObject {
         return result;
     }
 
-    private ReleaseOperation.ReleaseResult performRelease(final IDProvider currentObjForRelease, final boolean checkOnly,
-                                                          final ReleaseOperation releaseOperation, final boolean releaseRecursively) throws Exception {
-        ReleaseOperation.ReleaseResult releaseResult = null;
-        if (isPageRef(currentObjForRelease)) {
-            // in order to decide if a pageref can be released, one has
-            // to check if the referenced page exists
-            final IDProvider.DependentReleaseType releaseType;
-            if (checkOnly) {
-                releaseType = IDProvider.DependentReleaseType.DEPENDENT_RELEASE_NEW_ONLY;
-            } else {
-                releaseType = IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE;
+    /*
+     * Checks the rules of the elements and of the sections of pages (as checkrules is not recursive). The forms are validated in parallel,
+     * the errors are collected in the order of the elements. Forms that are not validated within the time limit count as an error.
+     */
+    private void validate(final List<ReleasePlan.Entry> entries) {
+        final FormValidator formValidator = releaseRun.getFormValidator();
+        final List<Callable<Optional<String>>> tasks = new ArrayList<>();
+        for (final ReleasePlan.Entry entry : entries) {
+            tasks.add(() -> Optional.ofNullable(formValidator.isValid(entry.element())));
+            if (entry.kind() == ReleasePlan.Kind.PAGE) {
+                for (final Section<?> section : entry.element().getChildren(Section.class, true)) {
+                    tasks.add(() -> Optional.ofNullable(formValidator.isValid(section)));
+                }
             }
-            releaseResult =
-                releaseOperation.ensureAccessibility(true).recursive(false).dependentReleaseType(releaseType)
-                    .perform(currentObjForRelease);
-        } else if (isPageRefFolder(currentObjForRelease)) {
-            // in order to decide if a pageref can be released, one has
-            // to check if the referenced page exists
-            final IDProvider.DependentReleaseType releaseType;
-            if (checkOnly) {
-                releaseType = IDProvider.DependentReleaseType.DEPENDENT_RELEASE_NEW_ONLY;
+        }
+        final long start = System.currentTimeMillis();
+        final int timeLimit = releaseRun.getRunContext().getPositiveIntValue(WorkflowConstants.WF_VALIDATION_TIME_LIMIT, 0);
+        final List<Optional<String>> results = ParallelTasks.invokeAll(tasks, releaseRun.getParallelism(), timeLimit * 1000L);
+        int notValidated = 0;
+        for (final Optional<String> result : results) {
+            if (result == null) {
+                notValidated++;
             } else {
-                releaseType = IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE;
+                result.ifPresent(validationErrorList::add);
             }
-            releaseResult =
-                releaseOperation.ensureAccessibility(true).recursive(releaseRecursively)
-                    .dependentReleaseType(releaseType).perform(currentObjForRelease);
-        } else if (isPage(currentObjForRelease) || isDocumentGroup(currentObjForRelease) || isMedia(currentObjForRelease)) {
-            releaseResult =
-                releaseOperation.ensureAccessibility(true).recursive(false)
-                    .dependentReleaseType(IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE)
-                    .perform(currentObjForRelease);
-        } else if (isPageFolder(currentObjForRelease) || isMediaFolder(currentObjForRelease)) {
-            releaseResult =
-                releaseOperation.ensureAccessibility(true).recursive(releaseRecursively)
-                    .dependentReleaseType(IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE)
-                    .perform(currentObjForRelease);
-        } else if (isGcaPage(currentObjForRelease) || currentObjForRelease instanceof ProjectProperties || isDataset(currentObjForRelease)) {
-            releaseResult =
-                releaseOperation.ensureAccessibility(false).recursive(false)
-                    .dependentReleaseType(IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE)
-                    .perform(currentObjForRelease);
-        } else if (isGcaFolder(currentObjForRelease) || isSiteStoreRoot(currentObjForRelease)) {
-            releaseResult =
-                releaseOperation.ensureAccessibility(false).recursive(releaseRecursively)
-                    .dependentReleaseType(IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE)
-                    .perform(currentObjForRelease);
         }
-        return releaseResult;
-    }
-
-    private boolean shouldBeReleased(final int releaseStatus, final boolean releaseRecursively, final IDProvider currentObjForRelease) {
-        return (releaseStatus != IDProvider.RELEASED || releaseRecursively)
-               && !isTemplate(currentObjForRelease) && !isDataSource(currentObjForRelease) && !isDataSourceFolder(
-            currentObjForRelease);
-    }
-
-    private boolean isReleasable(final IDProvider currentObjForRelease, final List<IDProvider> customReleaseElements) {
-        return currentObjForRelease == workflowScriptContext.getElement()
-        || (isPageRef(workflowScriptContext.getElement())
-            && currentObjForRelease == ((PageRef) workflowScriptContext.getElement()).getPage())
-        || isMedia(currentObjForRelease) || isPageRefFolder(currentObjForRelease) || isSiteStoreRoot(currentObjForRelease)
-        || customReleaseElements.contains(currentObjForRelease)
-        || ((new FormEvaluator(workflowScriptContext)).getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME)
-            && (isPageFolder(currentObjForRelease) || isPage(currentObjForRelease) || isMediaFolder(currentObjForRelease)
-                || isMedia(currentObjForRelease) || isPageRefFolder(currentObjForRelease) || isPageRef(currentObjForRelease)
-                || isDocumentGroup(currentObjForRelease) || isGcaFolder(currentObjForRelease)
-                || isGcaPage(currentObjForRelease)));
-    }
-
-    private IDProvider getObjectAsIDProvider(final Object object) {
-        return object instanceof IDProvider ? (IDProvider) object : ((ReferenceEntry) object).getReferencedElement();
-    }
-
-    private boolean isDataSourceFolder(final IDProvider idProvider) {
-        return idProvider instanceof ContentFolder;
-    }
-
-    private boolean isDataSource(final IDProvider idProvider) {
-        return idProvider instanceof Content2;
-    }
-
-    private boolean isDataset(final IDProvider idProvider) {
-        return idProvider instanceof Dataset;
-    }
-
-    private boolean isTemplate(final IDProvider idProvider) {
-        return idProvider instanceof TemplateStoreElement;
-    }
-
-    private boolean isSiteStoreRoot(final IDProvider idProvider) {
-        return idProvider instanceof SiteStoreRoot;
-    }
-
-    private boolean isGcaPage(final IDProvider idProvider) {
-        return idProvider instanceof GCAPage;
-    }
-
-    private boolean isGcaFolder(final IDProvider idProvider) {
-        return idProvider instanceof GCAFolder;
-    }
-
-    private boolean isDocumentGroup(final IDProvider idProvider) {
-        return idProvider instanceof DocumentGroup;
+        Logging.logInfo("Validated " + (tasks.size() - notValidated) + " form(s) in " + (System.currentTimeMillis() - start) + " ms", LOGGER);
+        if (notValidated > 0) {
+            Logging.logWarning("Validation time limit of " + timeLimit + " s reached, " + notValidated + " form(s) were not validated", LOGGER);
+            validationErrorList.add("\n" + String.format(bundle.getString("errorValidationTimeout"), notValidated) + "\n");
+        }
     }
 
-    private boolean isMediaFolder(final IDProvider idProvider) {
-        return idProvider instanceof MediaFolder;
-    }
+    private boolean releaseBatch(final OperationAgent operationAgent, final ReleaseSettings releaseSettings, final List<IDProvider> batch,
+                                 final boolean checkOnly, final Language[] languages, final Set<BasicInfo> lockedList, final Set<BasicInfo> permList)
+        throws Exception {
+        final IDProvider workflowElement = workflowScriptContext.getElement();
+        final boolean containsWorkflowElement = batch.contains(workflowElement);
+        if (containsWorkflowElement) {
+            // unlock element that runs the workflow
+            workflowElement.setLock(false, false);
+        }
 
-    private boolean isPageRefFolder(final IDProvider idProvider) {
-        return idProvider instanceof PageRefFolder;
+        final ReleaseOperation releaseOperation = operationAgent.getOperation(ReleaseOperation.TYPE);
+        releaseOperation.checkOnly(checkOnly);
+        if (languages.length > 0) {
+            releaseOperation.languages(languages);
+            Logging.logInfo("Releasing languages: " + Arrays.toString(languages), getClass());
+        } else {
+            Logging.logInfo("Releasing all languages.", getClass());
+        }
+        Logging.logInfo("Releasing " + batch.size() + " element(s) with " + releaseSettings, LOGGER);
+
+        final ReleaseOperation.ReleaseResult releaseResult =
+            releaseOperation.ensureAccessibility(releaseSettings.ensureAccessibility()).recursive(releaseSettings.recursive())
+                .dependentReleaseType(releaseSettings.dependentReleaseType()).perform(batch.toArray(new IDProvider[0]));
+        final boolean result = handleResult(lockedList, permList, releaseResult, batch);
+        if (containsWorkflowElement) {
+            workflowElement.setLock(true, false);
+        }
+        for (final IDProvider idProvider : batch) {
+            idProvider.refresh();
+            releaseRun.getReleaseStatusCache().invalidate(idProvider.getId());
+        }
+        if (!checkOnly) {
+            releaseRun.addReleasedElements(batch);
+        }
+        return result;
     }
 
-    private boolean isMedia(final IDProvider idProvider) {
-        return idProvider instanceof Media;
+    private boolean shouldBeReleased(final int releaseStatus, final boolean releaseRecursively, final ReleasePlan.Kind kind) {
+        return (releaseStatus != IDProvider.RELEASED || releaseRecursively)
+               && kind != ReleasePlan.Kind.TEMPLATE && kind != ReleasePlan.Kind.DATA_SOURCE && kind != ReleasePlan.Kind.DATA_SOURCE_FOLDER;
     }
 
-    private boolean isPageFolder(final IDProvider idProvider) {
-        return idProvider instanceof PageFolder;
+    /*
+     * In an incremental release, released elements are neither validated nor released again. The start element and the changed children are
+     * released without their children, parents first, so the released subtree is not released again on the server.
+     */
+    private boolean isUnchanged(final int releaseStatus, final IDProvider currentObjForRelease) {
+        return releaseStatus == IDProvider.RELEASED && currentObjForRelease.getId() != workflowScriptContext.getElement().getId();
     }
 
-    private boolean isPage(final IDProvider idProvider) {
-        return idProvider instanceof Page;
+    private boolean isReleasable(final IDProvider currentObjForRelease, final ReleasePlan.Kind kind, final List<IDProvider> customReleaseElements) {
+        return currentObjForRelease == workflowScriptContext.getElement()
+        || (workflowScriptContext.getElement() instanceof PageRef
+            && currentObjForRelease == ((PageRef) workflowScriptContext.getElement()).getPage())
+        || kind == ReleasePlan.Kind.MEDIA || kind == ReleasePlan.Kind.PAGE_REF_FOLDER || kind == ReleasePlan.Kind.SITE_STORE_ROOT
+        || customReleaseElements.contains(currentObjForRelease)
+        || (releaseRun.getRunContext().getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME)
+            && isReleasedRecursively(kind));
     }
 
-    private boolean isPageRef(final IDProvider idProvider) {
-        return idProvider instanceof PageRef;
+    private static boolean isReleasedRecursively(final ReleasePlan.Kind kind) {
+        return switch (kind) {
+            case PAGE_FOLDER, PAGE, MEDIA_FOLDER, MEDIA, PAGE_REF_FOLDER, PAGE_REF, DOCUMENT_GROUP, GCA_FOLDER, GCA_PAGE -> true;
+            default -> false;
+        };
     }
 
-
     private boolean isChildrenOf(final IDProvider children, final IDProvider parent) {
         if (children.getStore() != parent.getStore()) {
             return false;
         }
-        IDProvider currentParent = children.getParent();
-        while (currentParent != null) {
-            if (currentParent.getId() == parent.getId()) {
-                return true;
-            }
-            currentParent = currentParent.getParent();
-        }
-        return false;
+        return releaseRun.getAncestorIndex().isDescendantOf(children, parent.getId());
     }
 
 
     private boolean handleResult(final Set<BasicInfo> lockedList, final Set<BasicInfo> permList, ReleaseOperation.ReleaseResult releaseResult,
-                                 final IDProvider idProvider) {
+                                 final List<IDProvider> batch) {
         boolean result = true;
         try {
             Logging.logInfo("Release Result: " + releaseResult.isSuccessful(), LOGGER);
 
             final Set<BasicInfo> lockedFailed = releaseResult.getProblematicElements().get(ReleaseProblem.LOCK_FAILED);
             final Set<BasicInfo> missingPermission = releaseResult.getProblematicElements().get(ReleaseProblem.MISSING_PERMISSION);
+            logProblems(batch, ReleaseProblem.LOCK_FAILED, lockedFailed);
+            logProblems(batch, ReleaseProblem.MISSING_PERMISSION, missingPermission);
             Logging.logInfo("Released Elements:", LOGGER);
             for (final BasicInfo released : releaseResult.getReleasedElements()) {
                 if (!released.isEntity()) {
                     Logging.logInfo("  id:" + ((BasicElementInfo) released).getNodeId(), LOGGER);
+                    releaseRun.getReleaseStatusCache().invalidate(((BasicElementInfo) released).getNodeId());
                 } else {
                     Logging.logInfo("  name:" + released.getName(), LOGGER);
                 }
@@ -455,12 +411,28 @@ public class ReleaseObject {
                 result = false;
             }
         } catch (final Exception e) {
-            Logging.logError("Exception during Release of " + idProvider, e, LOGGER);
+            Logging.logError("Exception during Release of " + batch, e, LOGGER);
             result = false;
         }
         return result;
     }
 
+    private static void logProblems(final List<IDProvider> batch, final ReleaseProblem problem, final Set<BasicInfo> problematicElements) {
+        if (problematicElements == null || problematicElements.isEmpty()) {
+            return;
+        }
+        final IdSet batchIds = new IdSet(batch.size());
+        for (final IDProvider idProvider : batch) {
+            batchIds.add(idProvider.getId());
+        }
+        for (final BasicInfo problematicElement : problematicElements) {
+            if (!problematicElement.isEntity()) {
+                final long nodeId = ((BasicElementInfo) problematicElement).getNodeId();
+                Logging.logInfo("  " + problem + " id:" + nodeId + (batchIds.contains(nodeId) ? "" : " (dependent element)"), LOGGER);
+            }
+        }
+    }
+
     private List<IDProvider> getCustomReleaseElements(final String type) {
         final List<IDProvider> customReleaseElements = new ArrayList<>();
         if (type.equals(WorkflowConstants.RELEASE_PAGEREF_ELEMENTS)) {
@@ -488,7 +460,7 @@ public class ReleaseObject {
     private boolean releaseEntity(final Content2 content2, final Entity entity, final boolean checkOnly) {
         boolean result = true;
 
-        final String validationError = new FormValidator(workflowScriptContext).isValid(content2, entity);
+        final String validationError = releaseRun.getFormValidator().isValid(content2, entity);
         if (validationError == null) {
             if (!checkOnly) {
                 entity.refresh();
@@ -507,25 +479,37 @@ public class ReleaseObject {
     }
 
     /**
-     * Convenience method to generate an error message for an object.
+     * The settings of a release operation.
      *
-     * @param id the object to generate a message for.
-     * @return the error message.
+     * @param ensureAccessibility  Whether the parents are released if necessary.
+     * @param recursive            Whether the children are released.
+     * @param dependentReleaseType Which dependent elements are released.
      */
-    private String createErrorString(final Object id) {
-        final QueryAgent queryAgent = workflowScriptContext.requireSpecialist(QueryAgent.TYPE);
-        final Iterable<IDProvider> hits = queryAgent.answer("fs.id=" + id, null);
-        if (hits.iterator().hasNext()) {
-            final IDProvider element = hits.iterator().next();
-            if (element.hasUid()) {
-                return element.getDisplayName(new FsLocale(workflowScriptContext).getLanguage()) + " (" + element.getUid() + ", " + element.getId()
-                       + ")\n";
-            } else {
-                return "";
-            }
-        } else {
-            Logging.logError("Found no element with id " + id, LOGGER);
-            return "";
+    private record ReleaseSettings(boolean ensureAccessibility, boolean recursive, IDProvider.DependentReleaseType dependentReleaseType) {
+
+        /**
+         * Determines the settings for an element kind.
+         *
+         * @param kind               The kind of the element.
+         * @param checkOnly          Whether the release is only checked.
+         * @param releaseRecursively Whether the release is recursive.
+         * @return the settings or null if elements of this kind are not released.
+         */
+        static ReleaseSettings of(final ReleasePlan.Kind kind, final boolean checkOnly, final boolean releaseRecursively) {
+            // in order to decide if a pageref can be released, one has
+            // to check if the referenced page exists
+            final IDProvider.DependentReleaseType pageRefReleaseType =
+                checkOnly ? IDProvider.DependentReleaseType.DEPENDENT_RELEASE_NEW_ONLY : IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE;
+            return switch (kind) {
+                case PAGE_REF -> new ReleaseSettings(true, false, pageRefReleaseType);
+                case PAGE_REF_FOLDER -> new ReleaseSettings(true, releaseRecursively, pageRefReleaseType);
+                case PAGE, DOCUMENT_GROUP, MEDIA -> new ReleaseSettings(true, false, IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE);
+                case PAGE_FOLDER, MEDIA_FOLDER -> new ReleaseSettings(true, releaseRecursively, IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE);
+                case GCA_PAGE, PROJECT_PROPERTIES, DATASET -> new ReleaseSettings(false, false, IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE);
+                case GCA_FOLDER, SITE_STORE_ROOT ->
+                    new ReleaseSettings(false, releaseRecursively, IDProvider.DependentReleaseType.NO_DEPENDENT_RELEASE);
+                default -> null;
+            };
         }
     }
 }
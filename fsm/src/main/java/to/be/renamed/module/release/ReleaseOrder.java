@@ -0,0 +1,144 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import to.be.renamed.module.util.IdSet;
+
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.Store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The order in which the elements of a release plan are released. Media are released first, then pages, then site store elements and
+ * then elements of all other stores, so pages are released before the page references that show them. Within a store, parents that are
+ * part of the plan are released before their children, so the release of a child does not have to release them again to make the child
+ * accessible.
+ * <p>
+ * The elements are split into groups of the same store and the same number of ancestors in the plan. The elements of one group do not
+ * depend on each other and may be released together. The sort key of each element is computed only once.
+ */
+class ReleaseOrder {
+
+    private static final int INDEX_BITS = 24;
+    private static final int LEVEL_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final long LEVEL_MASK = (1L << LEVEL_BITS) - 1;
+
+    /**
+     * The groups in release order.
+     */
+    private final List<List<ReleasePlan.Entry>> groups;
+
+    /**
+     * All entries in release order.
+     */
+    private final List<ReleasePlan.Entry> entries;
+
+    private ReleaseOrder(final List<List<ReleasePlan.Entry>> groups, final List<ReleasePlan.Entry> entries) {
+        this.groups = Collections.unmodifiableList(groups);
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Orders the elements of a release plan.
+     *
+     * @param releasePlan   The plan to order.
+     * @param ancestorIndex The parent chains of the workflow step.
+     * @return the release order.
+     */
+    static ReleaseOrder of(final ReleasePlan releasePlan, final AncestorIndex ancestorIndex) {
+        final List<ReleasePlan.Entry> planEntries = releasePlan.getEntries();
+        final int size = planEntries.size();
+        if (size > INDEX_MASK) {
+            throw new IllegalArgumentException("Release plan is too large to be ordered: " + size);
+        }
+        final IdSet planIds = new IdSet(size);
+        for (final ReleasePlan.Entry entry : planEntries) {
+            planIds.add(entry.element().getId());
+        }
+
+        // key: store rank | ancestors in plan | insertion index, so sorting the keys keeps the insertion order within a group
+        final long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            final IDProvider element = planEntries.get(i).element();
+            final long level = Math.min(countAncestorsInPlan(ancestorIndex.getAncestorIds(element), planIds), LEVEL_MASK);
+            keys[i] = ((long) storeRank(element) << (LEVEL_BITS + INDEX_BITS)) | (level << INDEX_BITS) | i;
+        }
+        Arrays.sort(keys);
+
+        final List<List<ReleasePlan.Entry>> groups = new ArrayList<>();
+        final List<ReleasePlan.Entry> entries = new ArrayList<>(size);
+        List<ReleasePlan.Entry> group = null;
+        long groupKey = -1;
+        for (final long key : keys) {
+            final ReleasePlan.Entry entry = planEntries.get((int) (key & INDEX_MASK));
+            if (group == null || key >>> INDEX_BITS != groupKey) {
+                group = new ArrayList<>();
+                groups.add(group);
+                groupKey = key >>> INDEX_BITS;
+            }
+            group.add(entry);
+            entries.add(entry);
+        }
+        return new ReleaseOrder(groups, entries);
+    }
+
+    /**
+     * Gets all entries in release order.
+     *
+     * @return an unmodifiable list of the entries.
+     */
+    List<ReleasePlan.Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the groups of independent entries in release order.
+     *
+     * @return an unmodifiable list of the groups.
+     */
+    List<List<ReleasePlan.Entry>> getGroups() {
+        return groups;
+    }
+
+    private static int storeRank(final IDProvider element) {
+        final Store.Type type = element.getStore().getType();
+        if (type == Store.Type.MEDIASTORE) {
+            return 0;
+        } else if (type == Store.Type.PAGESTORE) {
+            return 1;
+        } else if (type == Store.Type.SITESTORE) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private static int countAncestorsInPlan(final long[] ancestorIds, final IdSet planIds) {
+        int count = 0;
+        for (final long ancestorId : ancestorIds) {
+            if (planIds.contains(ancestorId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import to.be.renamed.module.util.IdSet;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.ReferenceEntry;
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.contentstore.Content2;
+import de.espirit.firstspirit.access.store.contentstore.ContentFolder;
+import de.espirit.firstspirit.access.store.contentstore.Dataset;
+import de.espirit.firstspirit.access.store.globalstore.GCAFolder;
+import de.espirit.firstspirit.access.store.globalstore.GCAPage;
+import de.espirit.firstspirit.access.store.globalstore.ProjectProperties;
+import de.espirit.firstspirit.access.store.mediastore.Media;
+import de.espirit.firstspirit.access.store.mediastore.MediaFolder;
+import de.espirit.firstspirit.access.store.pagestore.Page;
+import de.espirit.firstspirit.access.store.pagestore.PageFolder;
+import de.espirit.firstspirit.access.store.sitestore.DocumentGroup;
+import de.espirit.firstspirit.access.store.sitestore.PageRef;
+import de.espirit.firstspirit.access.store.sitestore.PageRefFolder;
+import de.espirit.firstspirit.access.store.sitestore.SiteStoreRoot;
+import de.espirit.firstspirit.access.store.templatestore.TemplateStoreElement;
+import de.espirit.or.schema.Entity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The elements to release in one release step. Elements are kept once per id in insertion order, together with their kind. References to
+ * entities are kept separately as they are not released as store elements.
+ */
+class ReleasePlan {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = ReleasePlan.class;
+
+    /**
+     * The ids of the elements in the plan.
+     */
+    private final IdSet elementIds = new IdSet();
+
+    /**
+     * The ids of elements that are not added, because an earlier plan of the same run released them.
+     */
+    private final IdSet excludedIds;
+
+    /**
+     * The elements in insertion order.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * The references to entities.
+     */
+    private final List<ReferenceEntry> entityReferences = new ArrayList<>();
+
+    /**
+     * The number of references without a referenced element.
+     */
+    private int brokenReferences;
+
+    /**
+     * Creates an empty plan.
+     */
+    ReleasePlan() {
+        this(new IdSet(0));
+    }
+
+    private ReleasePlan(final IdSet excludedIds) {
+        this.excludedIds = excludedIds;
+    }
+
+    /**
+     * Creates an empty plan that does not add the given elements.
+     *
+     * @param excludedIds The ids of the elements not to add, e.g. released by an earlier plan. The set is read, not copied.
+     * @return the new plan.
+     */
+    static ReleasePlan excluding(final IdSet excludedIds) {
+        return new ReleasePlan(excludedIds);
+    }
+
+    /**
+     * Creates a plan with a single element.
+     *
+     * @param idProvider The element to release.
+     * @return the new plan.
+     */
+    static ReleasePlan of(final IDProvider idProvider) {
+        final ReleasePlan releasePlan = new ReleasePlan();
+        releasePlan.add(idProvider);
+        return releasePlan;
+    }
+
+    private void addObject(final Object object) {
+        if (object instanceof final IDProvider idProvider) {
+            add(idProvider);
+        } else if (object instanceof final ReferenceEntry referenceEntry) {
+            addReferenceEntry(referenceEntry);
+        } else {
+            Logging.logWarning(String.format("Release plan does not support objects of type %s", object == null ? null : object.getClass()), LOGGER);
+        }
+    }
+
+    /**
+     * Adds an element to the plan.
+     *
+     * @param idProvider The element to add.
+     * @return true if the plan did not contain the element before.
+     */
+    boolean add(final IDProvider idProvider) {
+        if (idProvider == null) {
+            brokenReferences++;
+            return false;
+        }
+        if (!excludedIds.contains(idProvider.getId()) && elementIds.add(idProvider.getId())) {
+            entries.add(new Entry(idProvider, Kind.of(idProvider)));
+            return true;
+        }
+        return false;
+    }
+
+    private void addReferenceEntry(final ReferenceEntry referenceEntry) {
+        if (referenceEntry.getReferencedObject() instanceof Entity) {
+            entityReferences.add(referenceEntry);
+        } else {
+            add(referenceEntry.getReferencedElement());
+        }
+    }
+
+    /**
+     * Adds all IDProviders and targets of ReferenceEntries to the plan.
+     *
+     * @param objects The IDProviders and ReferenceEntries to add.
+     */
+    void addAll(final Collection<?> objects) {
+        for (final Object object : objects) {
+            addObject(object);
+        }
+    }
+
+    /**
+     * Adds all IDProviders and targets of ReferenceEntries to the plan, except references to the given PageRefs.
+     *
+     * @param objects          The IDProviders and ReferenceEntries to add.
+     * @param excludedPageRefs Uids of PageRefs that are not added.
+     */
+    void addAllExcludingPageRefs(final Collection<?> objects, final Collection<String> excludedPageRefs) {
+        for (final Object object : objects) {
+            if (object instanceof final ReferenceEntry refEntry && refEntry.getReferencedElement() instanceof final PageRef pageRef
+                && excludedPageRefs.contains(pageRef.getUid())) {
+                continue;
+            }
+            addObject(object);
+        }
+    }
+
+    /**
+     * Checks if the plan contains an element.
+     *
+     * @param idProvider The element to check.
+     * @return true if the element is part of the plan.
+     */
+    boolean contains(final IDProvider idProvider) {
+        return idProvider != null && elementIds.contains(idProvider.getId());
+    }
+
+    /**
+     * Gets the elements of the plan in insertion order.
+     *
+     * @return an unmodifiable list of the entries.
+     */
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Gets the references to entities.
+     *
+     * @return an unmodifiable list of the entity references.
+     */
+    List<ReferenceEntry> getEntityReferences() {
+        return Collections.unmodifiableList(entityReferences);
+    }
+
+    /**
+     * Checks if references without a referenced element were added.
+     *
+     * @return true if the plan contains broken references.
+     */
+    boolean hasBrokenReferences() {
+        return brokenReferences > 0;
+    }
+
+    /**
+     * Gets the number of elements in the plan.
+     *
+     * @return the number of elements.
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * An element of the plan together with its kind.
+     *
+     * @param element The element to release.
+     * @param kind    The kind of the element.
+     */
+    record Entry(IDProvider element, Kind kind) {
+
+    }
+
+    /**
+     * The kinds of elements the release distinguishes. The kind of an element is the first match in declaration order.
+     */
+    enum Kind {
+        PAGE_REF(PageRef.class),
+        PAGE_REF_FOLDER(PageRefFolder.class),
+        PAGE(Page.class),
+        DOCUMENT_GROUP(DocumentGroup.class),
+        MEDIA(Media.class),
+        PAGE_FOLDER(PageFolder.class),
+        MEDIA_FOLDER(MediaFolder.class),
+        GCA_PAGE(GCAPage.class),
+        PROJECT_PROPERTIES(ProjectProperties.class),
+        DATASET(Dataset.class),
+        GCA_FOLDER(GCAFolder.class),
+        SITE_STORE_ROOT(SiteStoreRoot.class),
+        TEMPLATE(TemplateStoreElement.class),
+        DATA_SOURCE(Content2.class),
+        DATA_SOURCE_FOLDER(ContentFolder.class),
+        OTHER(IDProvider.class);
+
+        private static final Kind[] KINDS = values();
+
+        private final Class<?> type;
+
+        Kind(final Class<?> type) {
+            this.type = type;
+        }
+
+        /**
+         * Determines the kind of an element.
+         *
+         * @param idProvider The element.
+         * @return the kind of the element.
+         */
+        static Kind of(final IDProvider idProvider) {
+            for (final Kind kind : KINDS) {
+                if (kind.type.isInstance(idProvider)) {
+                    return kind;
+                }
+            }
+            return OTHER;
+        }
+    }
+}
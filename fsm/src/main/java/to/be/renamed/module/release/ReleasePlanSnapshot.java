@@ -0,0 +1,322 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import to.be.renamed.module.util.IdSet;
+import to.be.renamed.module.util.WorkflowConstants;
+import to.be.renamed.module.util.WorkflowSessionHelper;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.Language;
+import de.espirit.firstspirit.access.ReferenceEntry;
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.Store;
+import de.espirit.firstspirit.access.store.pagestore.Page;
+import de.espirit.firstspirit.access.store.pagestore.Section;
+import de.espirit.firstspirit.access.store.sitestore.PageRef;
+import de.espirit.firstspirit.access.store.sitestore.SiteStoreFolder;
+import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
+import de.espirit.firstspirit.agency.StoreAgent;
+import de.espirit.or.schema.Entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The referenced elements collected for each release element, stored in the workflow session by the test release, so the release step does
+ * not have to collect them again.
+ * <p>
+ * For every release element the snapshot keeps the ids, store types and revisions of the referenced elements and of the elements the
+ * references were read from (the element itself, its parents, the page and sections of a page reference and the children of a recursively
+ * released folder). The references of a release element are reused only if none of these revisions changed, otherwise they are collected
+ * again. The snapshot is kept as a plain long array, so the session does not depend on classes of this module.
+ */
+class ReleasePlanSnapshot {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = ReleasePlanSnapshot.class;
+
+    /**
+     * Version of the session format, snapshots with another version are ignored.
+     */
+    private static final long FORMAT_VERSION = 1L;
+
+    /**
+     * Revision used for elements without revision, never matches a current revision.
+     */
+    private static final long NO_REVISION = -1L;
+
+    /**
+     * Values per entry: id, store type and target flag, revision.
+     */
+    private static final int ENTRY_LENGTH = 3;
+
+    private static final Store.Type[] STORE_TYPES = Store.Type.values();
+
+    /**
+     * The workflowScriptContext from the workflow.
+     */
+    private final WorkflowScriptContext workflowScriptContext;
+
+    /**
+     * Hash of the release options the snapshot was collected with.
+     */
+    private final long fingerprint;
+
+    /**
+     * The entries by id of the release element.
+     */
+    private final Map<Long, long[]> segments;
+
+    /**
+     * Whether collected references are recorded.
+     */
+    private final boolean recording;
+
+    private StoreAgent storeAgent;
+    private int reused;
+    private int collected;
+
+    private ReleasePlanSnapshot(final WorkflowScriptContext workflowScriptContext, final long fingerprint, final Map<Long, long[]> segments,
+                                final boolean recording) {
+        this.workflowScriptContext = workflowScriptContext;
+        this.fingerprint = fingerprint;
+        this.segments = segments;
+        this.recording = recording;
+    }
+
+    /**
+     * Reads the snapshot from the workflow session. If the session contains no snapshot or one that was collected with other release options,
+     * an empty snapshot is returned.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     * @param releaseWithMedia      Whether referenced media are released.
+     * @param releaseRecursively    Whether the release is recursive.
+     * @param languages             The languages to release.
+     * @param recording             Whether collected references are recorded for a later step.
+     * @return the snapshot.
+     */
+    static ReleasePlanSnapshot fromSession(final WorkflowScriptContext workflowScriptContext, final boolean releaseWithMedia,
+                                           final boolean releaseRecursively, final Language[] languages, final boolean recording) {
+        final long fingerprint = fingerprint(workflowScriptContext.getElement(), releaseWithMedia, releaseRecursively, languages);
+        final Map<Long, long[]> segments = new LinkedHashMap<>();
+        final Object value = WorkflowSessionHelper.readObjectFromSession(workflowScriptContext, WorkflowConstants.WF_RELEASE_PLAN);
+        if (value instanceof final long[] data && data.length >= 2 && data[0] == FORMAT_VERSION && data[1] == fingerprint) {
+            int index = 2;
+            while (index + 2 <= data.length) {
+                final long rootId = data[index];
+                final int length = (int) data[index + 1] * ENTRY_LENGTH;
+                index += 2;
+                if (length < 0 || index + length > data.length) {
+                    Logging.logWarning("Ignoring malformed release plan in workflow session", LOGGER);
+                    segments.clear();
+                    break;
+                }
+                segments.put(rootId, Arrays.copyOfRange(data, index, index + length));
+                index += length;
+            }
+        }
+        return new ReleasePlanSnapshot(workflowScriptContext, fingerprint, segments, recording);
+    }
+
+    /**
+     * Removes the snapshot from the workflow session.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     */
+    static void removeFromSession(final WorkflowScriptContext workflowScriptContext) {
+        workflowScriptContext.getSession().remove(WorkflowConstants.WF_RELEASE_PLAN);
+    }
+
+    /**
+     * Writes the snapshot to the workflow session.
+     */
+    void writeToSession() {
+        int length = 2;
+        for (final long[] entries : segments.values()) {
+            length += 2 + entries.length;
+        }
+        final long[] data = new long[length];
+        data[0] = FORMAT_VERSION;
+        data[1] = fingerprint;
+        int index = 2;
+        for (final Map.Entry<Long, long[]> segment : segments.entrySet()) {
+            data[index++] = segment.getKey();
+            data[index++] = segment.getValue().length / ENTRY_LENGTH;
+            System.arraycopy(segment.getValue(), 0, data, index, segment.getValue().length);
+            index += segment.getValue().length;
+        }
+        workflowScriptContext.getSession().put(WorkflowConstants.WF_RELEASE_PLAN, data);
+    }
+
+    /**
+     * Gets the referenced elements of a release element if they are still up to date.
+     *
+     * @param root The release element.
+     * @return the referenced elements or null if they have to be collected again.
+     */
+    List<IDProvider> getReferences(final IDProvider root) {
+        final long[] entries = segments.get(root.getId());
+        if (entries == null) {
+            return null;
+        }
+        final List<IDProvider> references = new ArrayList<>();
+        for (int i = 0; i < entries.length; i += ENTRY_LENGTH) {
+            final IDProvider element = resolve(entries[i], (int) (entries[i + 1] >> 1));
+            if (element == null || entries[i + 2] == NO_REVISION || revisionOf(element) != entries[i + 2]) {
+                segments.remove(root.getId());
+                return null;
+            }
+            if ((entries[i + 1] & 1) != 0) {
+                references.add(element);
+            }
+        }
+        reused++;
+        return references;
+    }
+
+    /**
+     * Stores the referenced elements collected for a release element, if the snapshot is recording. References to entities and broken
+     * references are not stored, in that case the references of the element are collected again next time.
+     *
+     * @param root               The release element.
+     * @param releaseRecursively Whether the references of the children were collected, too.
+     * @param refObjects         The collected IDProviders and ReferenceEntries.
+     */
+    void putReferences(final IDProvider root, final boolean releaseRecursively, final Set<Object> refObjects) {
+        collected++;
+        if (!recording) {
+            return;
+        }
+        final Segment segment = new Segment();
+        for (final Object refObject : refObjects) {
+            final IDProvider target;
+            if (refObject instanceof final IDProvider idProvider) {
+                target = idProvider;
+            } else if (refObject instanceof final ReferenceEntry referenceEntry && !(referenceEntry.getReferencedObject() instanceof Entity)) {
+                target = referenceEntry.getReferencedElement();
+            } else {
+                target = null;
+            }
+            if (target == null) {
+                segments.remove(root.getId());
+                return;
+            }
+            segment.add(target, true);
+        }
+        segment.add(root, false);
+        for (IDProvider parent = (IDProvider) root.getParent(); parent != null; parent = (IDProvider) parent.getParent()) {
+            segment.add(parent, false);
+        }
+        addPageDependencies(segment, root);
+        if (releaseRecursively && root instanceof SiteStoreFolder) {
+            for (final IDProvider child : root.getChildren(IDProvider.class, true)) {
+                segment.add(child, false);
+                addPageDependencies(segment, child);
+            }
+        }
+        segments.put(root.getId(), segment.toArray());
+    }
+
+    /**
+     * Logs how many release elements were reused from the snapshot.
+     */
+    void logStatistics() {
+        Logging.logInfo("Release plan: reused references of " + reused + " element(s), collected references of " + collected + " element(s)",
+                        LOGGER);
+    }
+
+    private static void addPageDependencies(final Segment segment, final IDProvider element) {
+        final Page page;
+        if (element instanceof final PageRef pageRef) {
+            page = pageRef.getPage();
+        } else if (element instanceof final Page elementPage) {
+            page = elementPage;
+        } else {
+            page = null;
+        }
+        if (page != null) {
+            segment.add(page, false);
+            for (final Section<?> section : page.getChildren(Section.class, true)) {
+                segment.add(section, false);
+            }
+        }
+    }
+
+    private IDProvider resolve(final long id, final int storeType) {
+        if (storeType < 0 || storeType >= STORE_TYPES.length) {
+            return null;
+        }
+        if (storeAgent == null) {
+            storeAgent = workflowScriptContext.requireSpecialist(StoreAgent.TYPE);
+        }
+        return storeAgent.getStore(STORE_TYPES[storeType]).getStoreElement(id);
+    }
+
+    private static long revisionOf(final IDProvider element) {
+        return element.getRevision() == null ? NO_REVISION : element.getRevision().getId();
+    }
+
+    private static long fingerprint(final IDProvider element, final boolean releaseWithMedia, final boolean releaseRecursively,
+                                    final Language[] languages) {
+        final StringBuilder options = new StringBuilder();
+        options.append(element == null ? 0 : element.getId()).append('|').append(releaseWithMedia).append('|').append(releaseRecursively);
+        for (final Language language : languages) {
+            options.append('|').append(language.getAbbreviation());
+        }
+        // FNV-1a, 64 bit
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < options.length(); i++) {
+            hash ^= options.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The entries of one release element while they are collected. Every element is stored once, targets are added first.
+     */
+    private static final class Segment {
+
+        private final IdSet ids = new IdSet();
+        private long[] entries = new long[16 * ENTRY_LENGTH];
+        private int size;
+
+        void add(final IDProvider element, final boolean target) {
+            if (!ids.add(element.getId())) {
+                return;
+            }
+            if (size + ENTRY_LENGTH > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            entries[size++] = element.getId();
+            entries[size++] = ((long) element.getStore().getType().ordinal() << 1) | (target ? 1 : 0);
+            entries[size++] = revisionOf(element);
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(entries, size);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import to.be.renamed.module.util.WorkflowConstants;
+import to.be.renamed.module.util.WorkflowSessionHelper;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
+
+/**
+ * The progress of a recursive release that releases the children of a folder window by window, stored in the workflow session. If a window
+ * cannot be released, the release step can be started again and continues with the first window that was not released. The start element
+ * is released with the last window, so the progress is removed once it is released.
+ * <p>
+ * The progress is only used for the same start element and the same children, otherwise the release starts from the beginning. It is kept
+ * as a plain long array, so the session does not depend on classes of this module.
+ */
+class ReleaseProgress {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = ReleaseProgress.class;
+
+    /**
+     * Version of the session format, the first value of the stored array.
+     */
+    private static final long FORMAT_VERSION = 1L;
+
+    /**
+     * The workflowScriptContext from the workflow.
+     */
+    private final WorkflowScriptContext workflowScriptContext;
+
+    /**
+     * The fingerprint of the children, see {@link RecursiveChildren#fingerprint()}.
+     */
+    private final long childrenFingerprint;
+
+    /**
+     * The number of children released so far.
+     */
+    private int releasedChildren;
+
+    private ReleaseProgress(final WorkflowScriptContext workflowScriptContext, final long childrenFingerprint, final int releasedChildren) {
+        this.workflowScriptContext = workflowScriptContext;
+        this.childrenFingerprint = childrenFingerprint;
+        this.releasedChildren = releasedChildren;
+    }
+
+    /**
+     * Reads the progress from the workflow session.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     * @param children              The children of the recursive release.
+     * @return the progress, nothing released if the session contains no progress for the start element and children.
+     */
+    static ReleaseProgress fromSession(final WorkflowScriptContext workflowScriptContext, final RecursiveChildren children) {
+        final long childrenFingerprint = children.fingerprint();
+        final Object value = WorkflowSessionHelper.readObjectFromSession(workflowScriptContext, WorkflowConstants.WF_RELEASE_PROGRESS);
+        if (value instanceof final long[] data && data.length == 4 && data[0] == FORMAT_VERSION
+            && data[1] == workflowScriptContext.getElement().getId() && data[2] == childrenFingerprint && data[3] >= 0
+            && data[3] < children.size()) {
+            Logging.logInfo("Continuing release after " + data[3] + " of " + children.size() + " children", LOGGER);
+            return new ReleaseProgress(workflowScriptContext, childrenFingerprint, (int) data[3]);
+        }
+        return new ReleaseProgress(workflowScriptContext, childrenFingerprint, 0);
+    }
+
+    /**
+     * Removes the progress from the workflow session.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     */
+    static void removeFromSession(final WorkflowScriptContext workflowScriptContext) {
+        workflowScriptContext.getSession().remove(WorkflowConstants.WF_RELEASE_PROGRESS);
+    }
+
+    /**
+     * Gets the number of children released so far.
+     *
+     * @return the index of the first child that is not released.
+     */
+    int getReleasedChildren() {
+        return releasedChildren;
+    }
+
+    /**
+     * Records a released window and writes the progress to the workflow session.
+     *
+     * @param releasedChildren The number of children released so far, including the window.
+     */
+    void update(final int releasedChildren) {
+        this.releasedChildren = releasedChildren;
+        workflowScriptContext.getSession().put(WorkflowConstants.WF_RELEASE_PROGRESS,
+                                               new long[]{FORMAT_VERSION, workflowScriptContext.getElement().getId(), childrenFingerprint,
+                                                   releasedChildren});
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import to.be.renamed.module.util.FormValidator;
+import to.be.renamed.module.util.IdSet;
+import to.be.renamed.module.util.WorkflowConstants;
+import to.be.renamed.module.util.WorkflowRunContext;
+
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.Store;
+import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the state that is shared by all objects of one execution of a release workflow step, so it is computed only once per step. The
+ * state may be used by several threads that collect references in parallel.
+ */
+class ReleaseRun {
+
+    /**
+     * Maximum number of elements kept by {@link #getStoreElement(Store.Type, long)}, further elements are looked up every time.
+     */
+    private static final int MAX_STORE_ELEMENTS = 10_000;
+
+    /**
+     * The workflowScriptContext from the workflow.
+     */
+    private final WorkflowScriptContext workflowScriptContext;
+
+    /**
+     * The values of the workflowScriptContext that do not change during the run.
+     */
+    private final WorkflowRunContext runContext;
+
+    /**
+     * The data source index, created on first access.
+     */
+    private Content2Index content2Index;
+
+    /**
+     * The children of a recursive release, read on first access.
+     */
+    private RecursiveChildren recursiveChildren;
+
+    /**
+     * The release status of the elements, created on first access.
+     */
+    private ReleaseStatusCache releaseStatusCache;
+
+    /**
+     * The parent chains of the elements, created on first access.
+     */
+    private AncestorIndex ancestorIndex;
+
+    /**
+     * The broken reference checks of the referenced elements, created on first access.
+     */
+    private BrokenReferenceChecker brokenReferenceChecker;
+
+    /**
+     * The validator of the forms, created on first access.
+     */
+    private FormValidator formValidator;
+
+    /**
+     * The maximum number of threads, read on first access.
+     */
+    private int parallelism;
+
+    /**
+     * The lines of the elements shown in error dialogs, created on first access.
+     */
+    private ElementInfoResolver elementInfoResolver;
+
+    /**
+     * The elements looked up by store and id.
+     */
+    private final Map<ElementKey, IDProvider> storeElements = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the collected references are checked for broken references.
+     */
+    private volatile boolean checkingReferences;
+
+    /**
+     * The ids of the elements released by this run.
+     */
+    private final IdSet releasedIds = new IdSet();
+
+    /**
+     * Constructor for ReleaseRun.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     */
+    ReleaseRun(final WorkflowScriptContext workflowScriptContext) {
+        this.workflowScriptContext = workflowScriptContext;
+        runContext = new WorkflowRunContext(workflowScriptContext);
+    }
+
+    /**
+     * Gets the workflowScriptContext of this run.
+     *
+     * @return the workflowScriptContext.
+     */
+    WorkflowScriptContext getWorkflowScriptContext() {
+        return workflowScriptContext;
+    }
+
+    /**
+     * Gets the values of the workflowScriptContext that do not change during this run.
+     *
+     * @return the run context.
+     */
+    WorkflowRunContext getRunContext() {
+        return runContext;
+    }
+
+    /**
+     * Gets the index used to find the data source of referenced entities.
+     *
+     * @return the data source index.
+     */
+    synchronized Content2Index getContent2Index() {
+        if (content2Index == null) {
+            content2Index = new Content2Index(workflowScriptContext);
+        }
+        return content2Index;
+    }
+
+    /**
+     * Gets the children of a recursive release. They are read from the workflow session on first access, so the session entry has to be
+     * written before.
+     *
+     * @return the children of the recursive release.
+     */
+    synchronized RecursiveChildren getRecursiveChildren() {
+        if (recursiveChildren == null) {
+            recursiveChildren = RecursiveChildren.fromSession(workflowScriptContext);
+        }
+        return recursiveChildren;
+    }
+
+    /**
+     * Gets the release status of the elements of this run.
+     *
+     * @return the release status cache.
+     */
+    synchronized ReleaseStatusCache getReleaseStatusCache() {
+        if (releaseStatusCache == null) {
+            releaseStatusCache = new ReleaseStatusCache();
+        }
+        return releaseStatusCache;
+    }
+
+    /**
+     * Gets the parent chains of the elements of this run.
+     *
+     * @return the ancestor index.
+     */
+    synchronized AncestorIndex getAncestorIndex() {
+        if (ancestorIndex == null) {
+            ancestorIndex = new AncestorIndex();
+        }
+        return ancestorIndex;
+    }
+
+    /**
+     * Gets the broken reference checks of the elements of this run.
+     *
+     * @return the broken reference checker.
+     */
+    synchronized BrokenReferenceChecker getBrokenReferenceChecker() {
+        if (brokenReferenceChecker == null) {
+            brokenReferenceChecker = new BrokenReferenceChecker();
+        }
+        return brokenReferenceChecker;
+    }
+
+    /**
+     * Gets the validator of the forms of this run.
+     *
+     * @return the form validator.
+     */
+    synchronized FormValidator getFormValidator() {
+        if (formValidator == null) {
+            formValidator = new FormValidator(workflowScriptContext, getRunContext().getCacheService());
+        }
+        return formValidator;
+    }
+
+    /**
+     * Gets the maximum number of threads used by the parallel tasks of this run. It is read from the custom attribute
+     * {@link WorkflowConstants#WF_RELEASE_PARALLELISM}, without it all tasks run on the calling thread (see
+     * {@link WorkflowRunContext#getParallelism(String)}).
+     *
+     * @return the maximum number of threads.
+     */
+    synchronized int getParallelism() {
+        if (parallelism == 0) {
+            parallelism = runContext.getParallelism(WorkflowConstants.WF_RELEASE_PARALLELISM);
+        }
+        return parallelism;
+    }
+
+    /**
+     * Gets the resolver of the elements shown in error dialogs.
+     *
+     * @return the element info resolver.
+     */
+    synchronized ElementInfoResolver getElementInfoResolver() {
+        if (elementInfoResolver == null) {
+            elementInfoResolver = new ElementInfoResolver(runContext);
+        }
+        return elementInfoResolver;
+    }
+
+    /**
+     * Gets an element of the current state of a store. Up to {@value #MAX_STORE_ELEMENTS} elements are kept for the run, the store is read
+     * without holding a lock, so parallel callers do not wait for each other.
+     *
+     * @param storeType the store of the element
+     * @param id        the id of the element
+     * @return the element or null if it does not exist.
+     */
+    IDProvider getStoreElement(final Store.Type storeType, final long id) {
+        final ElementKey key = new ElementKey(storeType, id);
+        IDProvider element = storeElements.get(key);
+        if (element == null) {
+            element = runContext.getStoreAgent().getStore(storeType).getStoreElement(id);
+            if (element != null && storeElements.size() < MAX_STORE_ELEMENTS) {
+                storeElements.putIfAbsent(key, element);
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Sets whether the collected references are checked for broken references. The check needs the reference entries, so the references are
+     * then not taken from the cache service.
+     *
+     * @param checkingReferences true if the references are checked.
+     */
+    void setCheckingReferences(final boolean checkingReferences) {
+        this.checkingReferences = checkingReferences;
+    }
+
+    /**
+     * Checks whether the collected references are checked for broken references.
+     *
+     * @return true if the references are checked.
+     */
+    boolean isCheckingReferences() {
+        return checkingReferences;
+    }
+
+    /**
+     * Records elements released by this run.
+     *
+     * @param elements the released elements.
+     */
+    synchronized void addReleasedElements(final Collection<IDProvider> elements) {
+        for (final IDProvider element : elements) {
+            releasedIds.add(element.getId());
+        }
+    }
+
+    /**
+     * Gets the ids of the elements released by this run.
+     *
+     * @return the ids in ascending order.
+     */
+    synchronized long[] getReleasedIds() {
+        return releasedIds.toSortedArray();
+    }
+
+    private record ElementKey(Store.Type storeType, long id) {
+
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.Language;
+import de.espirit.firstspirit.access.store.IDProvider;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The release status of elements, read at most once per element and language set in one workflow step. Entries are removed when the
+ * workflow step releases the element. The cache may be used by several threads.
+ */
+class ReleaseStatusCache {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = ReleaseStatusCache.class;
+
+    /**
+     * Key of the status over all languages.
+     */
+    private static final String ALL_LANGUAGES = "";
+
+    /**
+     * The release status by language key and element id.
+     */
+    private final Map<String, Map<Long, Integer>> statusByLanguages = new ConcurrentHashMap<>();
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private volatile LanguagesKey lastLanguagesKey;
+
+    /**
+     * Gets the release status of an element.
+     *
+     * @param idProvider The element.
+     * @param languages  The languages to check, all languages if empty.
+     * @return the release status as defined in {@link IDProvider}.
+     */
+    int getReleaseStatus(final IDProvider idProvider, final Language[] languages) {
+        lookups.incrementAndGet();
+        final Map<Long, Integer> statusById = statusByLanguages.computeIfAbsent(languagesKey(languages), key -> new ConcurrentHashMap<>());
+        final Integer cachedStatus = statusById.get(idProvider.getId());
+        if (cachedStatus != null) {
+            return cachedStatus;
+        }
+        misses.incrementAndGet();
+        final int releaseStatus = languages.length > 0 ? idProvider.getReleaseStatus(languages) : idProvider.getReleaseStatus();
+        statusById.put(idProvider.getId(), releaseStatus);
+        return releaseStatus;
+    }
+
+    /**
+     * Removes the release status of an element, e.g. after it was released.
+     *
+     * @param id The id of the element.
+     */
+    void invalidate(final long id) {
+        for (final Map<Long, Integer> statusById : statusByLanguages.values()) {
+            statusById.remove(id);
+        }
+    }
+
+    /**
+     * Gets the number of status requests.
+     *
+     * @return the number of requests.
+     */
+    int getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * Gets the number of status requests that had to read the status from the element.
+     *
+     * @return the number of reads.
+     */
+    int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Logs the number of status requests and reads.
+     */
+    void logStatistics() {
+        Logging.logInfo("Release status: " + lookups.get() + " request(s), " + misses.get() + " read(s) from the store", LOGGER);
+    }
+
+    private String languagesKey(final Language[] languages) {
+        // the same array is passed through a whole workflow step
+        final LanguagesKey last = lastLanguagesKey;
+        if (last != null && last.languages() == languages) {
+            return last.key();
+        }
+        final String[] abbreviations = new String[languages.length];
+        for (int i = 0; i < languages.length; i++) {
+            abbreviations[i] = languages[i].getAbbreviation();
+        }
+        Arrays.sort(abbreviations);
+        final String key = abbreviations.length == 0 ? ALL_LANGUAGES : String.join(",", abbreviations);
+        lastLanguagesKey = new LanguagesKey(languages, key);
+        return key;
+    }
+
+    /**
+     * The key of the last requested language array.
+     */
+    private record LanguagesKey(Language[] languages, String key) {
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import to.be.renamed.module.util.IdSet;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.Language;
+import de.espirit.firstspirit.access.ReferenceEntry;
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.sitestore.PageRef;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds the release plans of the test release and the release step, so both steps add the same elements. A recursive release of a large
+ * folder can release its children window by window: the references of a window are released and its children validated, and only the
+ * children of one window are resolved at a time. The start element, whose release also releases the children, is added to the last window.
+ * The release step writes its progress to the session after each window, see {@link ReleaseProgress}.
+ */
+class ReleaseWindows {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = ReleaseWindows.class;
+
+    /**
+     * The state of the workflow step.
+     */
+    private final ReleaseRun releaseRun;
+
+    /**
+     * Determines if media references should also be released.
+     */
+    private final boolean releaseWithMedia;
+
+    /**
+     * The languages to release.
+     */
+    private final Language[] languages;
+
+    /**
+     * The references collected by the test release.
+     */
+    private final ReleasePlanSnapshot releasePlanSnapshot;
+
+    /**
+     * Collects the references of the elements, created on first use.
+     */
+    private ReferenceClosure referenceClosure;
+
+    /**
+     * Constructor for ReleaseWindows.
+     *
+     * @param releaseRun          The state of the workflow step.
+     * @param releaseWithMedia    Determines if media references should also be released.
+     * @param languages           The languages to release.
+     * @param releasePlanSnapshot The references collected by the test release, reused where they are up to date.
+     */
+    ReleaseWindows(final ReleaseRun releaseRun, final boolean releaseWithMedia, final Language[] languages,
+                   final ReleasePlanSnapshot releasePlanSnapshot) {
+        this.releaseRun = releaseRun;
+        this.releaseWithMedia = releaseWithMedia;
+        this.languages = languages;
+        this.releasePlanSnapshot = releasePlanSnapshot;
+    }
+
+    /**
+     * Releases or checks the children of the recursive release window by window. Stops at the first window that cannot be released. A
+     * release continues with the first window that was not released by an earlier run of the step, a check always starts with the first
+     * window.
+     *
+     * @param windowSize The number of children per window.
+     * @param checkOnly  True to only check the release.
+     * @return true if all windows were released or checked successfully.
+     */
+    boolean releaseInWindows(final int windowSize, final boolean checkOnly) {
+        final RecursiveChildren recursiveChildren = releaseRun.getRecursiveChildren();
+        final ReleaseProgress releaseProgress =
+            checkOnly ? null : ReleaseProgress.fromSession(releaseRun.getWorkflowScriptContext(), recursiveChildren);
+        // elements released or checked by an earlier window are not released again
+        final IdSet releasedIds = new IdSet();
+        final String action = checkOnly ? "Checking" : "Releasing";
+
+        for (int from = checkOnly ? 0 : releaseProgress.getReleasedChildren(); from < recursiveChildren.size(); from += windowSize) {
+            final int to = Math.min(from + windowSize, recursiveChildren.size());
+            final List<IDProvider> window = recursiveChildren.getElements(from, to);
+            if (to == recursiveChildren.size()) {
+                window.add(releaseRun.getWorkflowScriptContext().getElement());
+            }
+
+            final ReleasePlan releasePlan = ReleasePlan.excluding(releasedIds);
+            addToPlan(releasePlan, window, true);
+            Logging.logInfo(action + " children " + from + " to " + to + " of " + recursiveChildren.size(), LOGGER);
+            if (!new ReleaseObject(releaseRun, releasePlan).release(checkOnly, true, languages)) {
+                Logging.logWarning(action + " stopped after " + from + " of " + recursiveChildren.size() + " children", LOGGER);
+                return false;
+            }
+            for (final ReleasePlan.Entry entry : releasePlan.getEntries()) {
+                releasedIds.add(entry.element().getId());
+            }
+            if (releaseProgress != null) {
+                releaseProgress.update(to);
+            }
+        }
+        if (!checkOnly) {
+            ReleaseProgress.removeFromSession(releaseRun.getWorkflowScriptContext());
+        }
+        return true;
+    }
+
+    /**
+     * Adds elements, their references and the unreleased pages of page references to a release plan.
+     *
+     * @param releasePlan        The plan to add to.
+     * @param elements           The elements to release.
+     * @param releaseRecursively Whether the release is recursive.
+     */
+    void addToPlan(final ReleasePlan releasePlan, final List<IDProvider> elements, final boolean releaseRecursively) {
+        // reuse the references that are unchanged since they were collected, collect the others in parallel
+        final List<List<IDProvider>> snapshotReferences = new ArrayList<>(elements.size());
+        final List<IDProvider> collectedElements = new ArrayList<>();
+        for (final IDProvider storeElement : elements) {
+            final List<IDProvider> references = releasePlanSnapshot.getReferences(storeElement);
+            snapshotReferences.add(references);
+            if (references == null) {
+                collectedElements.add(storeElement);
+            }
+        }
+        if (referenceClosure == null) {
+            referenceClosure = new ReferenceClosure(releaseRun);
+        }
+        final Iterator<Set<Object>> collectedReferences =
+            referenceClosure.collect(collectedElements, releaseWithMedia, releaseRecursively, releaseRecursively, languages).iterator();
+
+        // merge in the order of the elements, so the release plan is the same as if the references were collected one after another
+        for (int i = 0; i < elements.size(); i++) {
+            final IDProvider storeElement = elements.get(i);
+            final List<IDProvider> references = snapshotReferences.get(i);
+            if (references != null) {
+                releasePlan.addAll(references);
+                Logging.logInfo("Reused " + references.size() + " referenced Elements of IDProvider Element with Id '" + storeElement.getId()
+                                + "'", LOGGER);
+            } else {
+                addReferences(storeElement, collectedReferences.next(), releaseRecursively, releasePlan);
+            }
+
+            if (storeElement instanceof PageRef) {
+                int releaseStatus = releaseRun.getReleaseStatusCache().getReleaseStatus(((PageRef) storeElement).getPage(), languages);
+
+                if (releaseStatus != IDProvider.RELEASED) {
+                    // if object is pageref, add page to release list if unreleased
+                    releasePlan.add(((PageRef) storeElement).getPage());
+                }
+            }
+
+            // add the object itself to releaseObjects list
+            if (releasePlan.add(storeElement)) {
+                Logging.logInfo("IDProvider Element with Id '" + storeElement.getId() + "' added to release list", LOGGER);
+            }
+        }
+    }
+
+    private void addReferences(final IDProvider storeElement, final Set<Object> refObjects, final boolean releaseRecursively,
+                               final ReleasePlan releasePlan) {
+        // add dependend objects to releaseObjects list
+        releasePlan.addAll(refObjects);
+        releasePlanSnapshot.putReferences(storeElement, releaseRecursively, refObjects);
+
+        // logging id's only
+        for (final Object refObject : refObjects) {
+            if (refObject instanceof IDProvider) {
+                Logging.logInfo("IDProvider referenced Element with Id '" + ((IDProvider) refObject).getId() + "' added to release list", LOGGER);
+            } else if (refObject instanceof ReferenceEntry) {
+                final IDProvider referencedElement = ((ReferenceEntry) refObject).getReferencedElement();
+                if (referencedElement != null) {
+                    Logging.logInfo("IDProvider referenced Element with Id '" + referencedElement.getId() + "' added to release list", LOGGER);
+                } else {
+                    Logging.logInfo("ReferenceEntry element is null. Broken Reference?", LOGGER);
+                }
+            } else {
+                Logging.logInfo("Element of class '" + refObject.getClass() + "' can't be fetched", LOGGER);
+            }
+        }
+    }
+}
@@ -18,8 +18,9 @@
 package to.be.renamed.module.release;
 
 import to.be.renamed.module.util.AbstractWorkflowExecutable;
-import to.be.renamed.module.util.FormEvaluator;
+import to.be.renamed.module.util.ChangeEventBus;
 import to.be.renamed.module.util.ReferenceResult;
+import to.be.renamed.module.util.SessionElements;
 import to.be.renamed.module.util.StoreUtil;
 import to.be.renamed.module.util.WorkflowConstants;
 import to.be.renamed.module.util.WorkflowSessionHelper;
@@ -29,7 +30,6 @@ import de.espirit.common.base.Logging;
 import de.espirit.common.util.Listable;
 import de.espirit.firstspirit.access.Language;
 import de.espirit.firstspirit.access.store.IDProvider;
-import de.espirit.firstspirit.access.store.Store;
 import de.espirit.firstspirit.access.store.StoreElement;
 import de.espirit.firstspirit.access.store.StoreElementFilter;
 import de.espirit.firstspirit.access.store.StoreElementFolder;
@@ -41,10 +41,10 @@ import de.espirit.firstspirit.access.store.sitestore.PageRefFolder;
 import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 /**
  * This class is used to find the related objects of the workflow object and to determine if it can
@@ -61,6 +61,11 @@ public class WfFindRelatedObjectsExecutable extends AbstractWorkflowExecutable {
      */
     public static final Class<?> LOGGER = WfFindRelatedObjectsExecutable.class;
 
+    /**
+     * Number of children whose references are collected together before they are checked.
+     */
+    private static final int CHECK_WINDOW = 200;
+
     @Override
     @SuppressWarnings("unchecked")
     public Object execute(final Map<String, Object> params) {
@@ -69,21 +74,26 @@ public class WfFindRelatedObjectsExecutable extends AbstractWorkflowExecutable {
         final StoreUtil storeUtil = new StoreUtil(workflowScriptContext);
 
         final IDProvider releaseElement = workflowScriptContext.getElement();
+        // the element is in a workflow now
+        ChangeEventBus.publish(releaseElement);
 
         final ResourceBundle bundle = loadResourceBundle(workflowScriptContext);
         boolean isReleasable = true;
 
-        final FormEvaluator formEvaluator = new FormEvaluator(workflowScriptContext);
-        final Language[] languages = formEvaluator.getLanguages();
-        boolean releaseRecursively = formEvaluator.getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME);
+        // state shared by all checked elements
+        final ReleaseRun releaseRun = new ReleaseRun(workflowScriptContext);
+        // the broken reference check scans the targets of the reference entries, so the references are read as entries
+        releaseRun.setCheckingReferences(true);
+        final Language[] languages = releaseRun.getRunContext().getLanguages();
+        boolean releaseRecursively = releaseRun.getRunContext().getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME);
 
         // for recursive release, write children to session
         if (releaseRecursively) {
             if (releaseElement instanceof PageFolder || releaseElement instanceof MediaFolder || releaseElement instanceof PageRefFolder
                 || releaseElement instanceof GCAFolder) {
-                final Map<Long, Store.Type> childrenIdMap = getChildrenOf(releaseElement, storeUtil);
-                Logging.logDebug("Write IdMap: " + childrenIdMap, LOGGER);
-                writeObjectToSession(workflowScriptContext, WorkflowConstants.WF_RECURSIVE_CHILDREN, childrenIdMap);
+                final SessionElements children = getChildrenOf(releaseElement, storeUtil);
+                writeObjectToSession(workflowScriptContext, WorkflowConstants.WF_RECURSIVE_CHILDREN, children.encode());
+                Logging.logDebug("Write children: " + children, LOGGER);
             } else {
                 releaseRecursively = false;
                 Logging.logWarning("Release start node is no folder! Release recursively set back to false!", LOGGER);
@@ -103,25 +113,30 @@ public class WfFindRelatedObjectsExecutable extends AbstractWorkflowExecutable {
         if (relatedPageRefUids != null && !relatedPageRefUids.isEmpty()) {
             for (final String pageRefUid : relatedPageRefUids) {
                 final PageRef pageRef = new StoreUtil(workflowScriptContext).loadPageRefByUid(pageRefUid);
-                if (hasReleaseIssues(workflowScriptContext, pageRef, languages)) {
+                if (hasReleaseIssues(workflowScriptContext, pageRef, languages, releaseRun)) {
                     isReleasable = false;
                 }
             }
         } else {
             // check if current element is releasable
-            if (hasReleaseIssues(workflowScriptContext, workflowScriptContext.getElement(), languages)) {
+            if (hasReleaseIssues(workflowScriptContext, workflowScriptContext.getElement(), languages, releaseRun)) {
                 isReleasable = false;
             }
             if (releaseRecursively) {
-                final Map<Long, Store.Type>
-                    childrenIdMap =
-                    WorkflowSessionHelper.readObjectFromSession(workflowScriptContext, WorkflowConstants.WF_RECURSIVE_CHILDREN);
-                final List<IDProvider> childrenList = new ArrayList<>(loadChildrenList(workflowScriptContext, childrenIdMap));
-                for (final IDProvider idProvider : childrenList) {
-                    isReleasable = isReleasable && !hasReleaseIssues(workflowScriptContext, idProvider, languages);
+                // resolve a window of children and collect their references in parallel, then check them in order until the first issue
+                final RecursiveChildren children = releaseRun.getRecursiveChildren();
+                final ReferenceClosure referenceClosure = new ReferenceClosure(releaseRun);
+                for (int from = 0; isReleasable && from < children.size(); from += CHECK_WINDOW) {
+                    final List<IDProvider> window = children.getElements(from, Math.min(from + CHECK_WINDOW, children.size()));
+                    final List<Set<Object>> references = referenceClosure.collect(window, true, true, false, languages);
+                    for (int i = 0; isReleasable && i < window.size(); i++) {
+                        isReleasable = !hasReleaseIssues(workflowScriptContext, window.get(i), references.get(i), languages, releaseRun);
+                    }
                 }
             }
         }
+        releaseRun.getBrokenReferenceChecker().logStatistics();
+        releaseRun.getRunContext().logCacheStatistics();
 
         if (isReleasable) {
             Logging.logInfo("Can be released", LOGGER);
@@ -153,9 +168,9 @@ public class WfFindRelatedObjectsExecutable extends AbstractWorkflowExecutable {
     }
 
 
-    private Map<Long, Store.Type> getChildrenOf(final IDProvider releaseElement, final StoreUtil storeUtil) {
+    private SessionElements getChildrenOf(final IDProvider releaseElement, final StoreUtil storeUtil) {
         final StoreElementFilter filter;
-        final Map<Long, Store.Type> childrenIdMap = new HashMap<>();
+        final SessionElements children = new SessionElements();
 
         filter = storeUtil.getChildrenSpecificFilter((StoreElementFolder) releaseElement);
         final Listable<StoreElement> childrenListable = releaseElement.getChildren(filter, true);
@@ -164,10 +179,10 @@ public class WfFindRelatedObjectsExecutable extends AbstractWorkflowExecutable {
         // recursively is set true
         for (final StoreElement child : childrenListable) {
             final IDProvider childIdProvider = (IDProvider) child;
-            childrenIdMap.put(childIdProvider.getId(), childIdProvider.getStore().getType());
+            children.add(childIdProvider);
             Logging.logInfo("IDProvider Element with Id '" + childIdProvider.getId() + "' added to release list", LOGGER);
         }
-        return childrenIdMap;
+        return children;
     }
 
     /**
@@ -177,13 +192,14 @@ public class WfFindRelatedObjectsExecutable extends AbstractWorkflowExecutable {
      * @param workflowScriptContext The context to use.
      * @param idProvider            The element to check.
      * @param languages             The languages to consider during the release check.
+     * @param releaseRun            The state shared by all checked elements.
      * @return true if there will be some issues during release.
      */
-    private boolean hasReleaseIssues(final WorkflowScriptContext workflowScriptContext, final IDProvider idProvider, final Language[] languages) {
-        final WorkflowObject workflowObject = new WorkflowObject(workflowScriptContext);
+    private boolean hasReleaseIssues(final WorkflowScriptContext workflowScriptContext, final IDProvider idProvider, final Language[] languages,
+                                     final ReleaseRun releaseRun) {
+        final WorkflowObject workflowObject = new WorkflowObject(releaseRun);
 
-        final FormEvaluator formEvaluator = new FormEvaluator(workflowScriptContext);
-        final boolean releaseRecursively = formEvaluator.getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME);
+        final boolean releaseRecursively = releaseRun.getRunContext().getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME);
         workflowObject.setRecursively(releaseRecursively);
 
         final ArrayList<Object> referencedObjects = new ArrayList<>();
@@ -196,13 +212,39 @@ public class WfFindRelatedObjectsExecutable extends AbstractWorkflowExecutable {
         } else {
             referencedObjects.addAll(workflowObject.getRefObjectsFromStoreElement(true, false, languages));
         }
+        return hasReleaseIssues(workflowScriptContext, workflowObject, idProvider, referencedObjects, languages, releaseRun);
+    }
+
+    /**
+     * Checks if the already collected referenced objects of a child of a recursive release can be released. Additionally checks the child
+     * itself.
+     *
+     * @param workflowScriptContext The context to use.
+     * @param idProvider            The child to check.
+     * @param collectedReferences   The referenced objects of the child.
+     * @param languages             The languages to consider during the release check.
+     * @param releaseRun            The state shared by all checked elements.
+     * @return true if there will be some issues during release.
+     */
+    private boolean hasReleaseIssues(final WorkflowScriptContext workflowScriptContext, final IDProvider idProvider,
+                                     final Set<Object> collectedReferences, final Language[] languages, final ReleaseRun releaseRun) {
+        final WorkflowObject workflowObject = new WorkflowObject(releaseRun);
+        workflowObject.setRecursively(true);
+        workflowObject.setStoreElement(idProvider);
+        return hasReleaseIssues(workflowScriptContext, workflowObject, idProvider, new ArrayList<>(collectedReferences), languages, releaseRun);
+    }
+
+    private boolean hasReleaseIssues(final WorkflowScriptContext workflowScriptContext, final WorkflowObject workflowObject,
+                                     final IDProvider idProvider, final List<Object> referencedObjects, final Language[] languages,
+                                     final ReleaseRun releaseRun) {
+        final boolean releaseRecursively = releaseRun.getRunContext().getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME);
 
         // check element itself in case of a recursive release, otherwise the element gets already checked by the elementStatusProvider.
         if (releaseRecursively && idProvider != workflowScriptContext.getElement()) {
             referencedObjects.add(idProvider);
         }
 
-        final boolean releaseWithMedia = formEvaluator.getCheckboxValue(WorkflowConstants.MEDIA_FORM_REFNAME);
+        final boolean releaseWithMedia = releaseRun.getRunContext().getCheckboxValue(WorkflowConstants.MEDIA_FORM_REFNAME);
 
         final ReferenceResult referenceResult = workflowObject.checkReferences(referencedObjects, releaseWithMedia, languages);
 
@@ -18,15 +18,15 @@
 package to.be.renamed.module.release;
 
 import to.be.renamed.module.util.AbstractWorkflowExecutable;
-import to.be.renamed.module.util.FormEvaluator;
+import to.be.renamed.module.util.ChangeEventBus;
 import to.be.renamed.module.util.StoreUtil;
 import to.be.renamed.module.util.WorkflowConstants;
+import to.be.renamed.module.util.WorkflowRunContext;
 import to.be.renamed.module.util.WorkflowSessionHelper;
 import com.espirit.moddev.components.annotations.PublicComponent;
 
 import de.espirit.common.base.Logging;
 import de.espirit.firstspirit.access.Language;
-import de.espirit.firstspirit.access.ReferenceEntry;
 import de.espirit.firstspirit.access.store.IDProvider;
 import de.espirit.firstspirit.access.store.Store;
 import de.espirit.firstspirit.access.store.contentstore.ContentWorkflowable;
@@ -62,22 +62,17 @@ public class WfReleaseExecutable extends AbstractWorkflowExecutable {
         final WorkflowScriptContext workflowScriptContext = (WorkflowScriptContext) params.get(WorkflowConstants.CONTEXT);
         final ResourceBundle bundle = loadResourceBundle(workflowScriptContext);
 
-        final WorkflowObject workflowObject = new WorkflowObject(workflowScriptContext);
+        final ReleaseRun releaseRun = new ReleaseRun(workflowScriptContext);
+        final WorkflowObject workflowObject = new WorkflowObject(releaseRun);
 
-        final FormEvaluator formEvaluator = new FormEvaluator(workflowScriptContext);
-        final boolean releaseWithMedia = formEvaluator.getCheckboxValue(WorkflowConstants.MEDIA_FORM_REFNAME);
-        final boolean releaseRecursively = formEvaluator.getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME);
-        final Language[] languages = formEvaluator.getLanguages();
+        final WorkflowRunContext runContext = releaseRun.getRunContext();
+        final boolean releaseWithMedia = runContext.getCheckboxValue(WorkflowConstants.MEDIA_FORM_REFNAME);
+        final boolean releaseRecursively = runContext.getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME);
+        final Language[] languages = runContext.getLanguages();
         workflowObject.setRecursively(releaseRecursively);
 
         final boolean releaseStatus;
-        final List<Object> releaseObjects = new ArrayList<>();
-
-        final List<IDProvider> childrenList = new ArrayList<>();
-        final Map<Long, Store.Type>
-            childrenIdMap =
-            WorkflowSessionHelper.readObjectFromSession(workflowScriptContext, WorkflowConstants.WF_RECURSIVE_CHILDREN);
-        childrenList.addAll(loadChildrenList(workflowScriptContext, childrenIdMap));
+        final ReleasePlan releasePlan = new ReleasePlan();
 
         final IDProvider releaseElement = workflowScriptContext.getElement();
 
@@ -99,51 +94,61 @@ public class WfReleaseExecutable extends AbstractWorkflowExecutable {
                     // add referenced elements from pageref excluding the pagerefs retrieved from
                     // the session since they will be added afterwards
                     final Set<Object> refObjectsFromStoreElement = workflowObject.getRefObjectsFromStoreElement(releaseWithMedia, false, languages);
-                    addReferencesExcludingPageRefsFromSession(refObjectsFromStoreElement, releasePageRefUids, releaseObjects);
+                    releasePlan.addAllExcludingPageRefs(refObjectsFromStoreElement, releasePageRefUids);
                     // add the pageref (and page)
-                    int
-                        pageReleaseStatus =
-                        languages.length > 0 ? pageRef.getPage().getReleaseStatus(languages) : pageRef.getPage().getReleaseStatus();
+                    int pageReleaseStatus = releaseRun.getReleaseStatusCache().getReleaseStatus(pageRef.getPage(), languages);
                     if (pageReleaseStatus != IDProvider.RELEASED) {
-                        releaseObjects.add(pageRef.getPage());
+                        releasePlan.add(pageRef.getPage());
                     }
-                    releaseObjects.add(pageRef);
+                    releasePlan.add(pageRef);
                 }
                 // do release
-                final ReleaseObject releaseObject = new ReleaseObject(workflowScriptContext, releaseObjects);
+                final ReleaseObject releaseObject = new ReleaseObject(releaseRun, releasePlan);
                 releaseStatus = releaseObject.release(false, releaseRecursively, languages);
             } else if (isStartedOnDatasource(workflowScriptContext)) {
                 // do release of referenced media if checkbox is checked
-                releaseObjects.addAll(workflowObject.getRefObjectsFromEntity(releaseWithMedia));
-                final ReleaseObject releaseObject = new ReleaseObject(workflowScriptContext, releaseObjects);
+                releasePlan.addAll(workflowObject.getRefObjectsFromEntity(releaseWithMedia));
+                final ReleaseObject releaseObject = new ReleaseObject(releaseRun, releasePlan);
                 final boolean releaseStatusWithoutEntity = releaseObject.release(false, releaseRecursively, languages);
                 // release entity
                 if (releaseStatusWithoutEntity) {
                     // do release
-                    final ReleaseObject releaseObjectWithEntity = new ReleaseObject(workflowScriptContext, Collections.singletonList(releaseElement));
+                    final ReleaseObject releaseObjectWithEntity = new ReleaseObject(releaseRun, ReleasePlan.of(releaseElement));
                     releaseStatus = releaseObjectWithEntity.release(false, releaseRecursively, languages);
                 } else {
                     releaseStatus = false;
                 }
             } else {
-                final List<IDProvider> releaseElementsWithPossibleChildren = new ArrayList<>();
-                releaseElementsWithPossibleChildren.add(releaseElement);
+                // reuse the references collected by the test release if they are still up to date
+                final ReleasePlanSnapshot releasePlanSnapshot =
+                    ReleasePlanSnapshot.fromSession(workflowScriptContext, releaseWithMedia, releaseRecursively, languages, false);
+                ReleasePlanSnapshot.removeFromSession(workflowScriptContext);
+
+                final ReleaseWindows releaseWindows = new ReleaseWindows(releaseRun, releaseWithMedia, languages, releasePlanSnapshot);
+                final int windowSize = runContext.getPositiveIntValue(WorkflowConstants.WF_RELEASE_WINDOW_SIZE, 0);
+                if (releaseRecursively && windowSize > 0 && !releaseRun.getRecursiveChildren().isEmpty()) {
+                    releaseStatus = releaseWindows.releaseInWindows(windowSize, false);
+                } else {
+                    final List<IDProvider> releaseElementsWithPossibleChildren = new ArrayList<>();
+                    releaseElementsWithPossibleChildren.add(releaseElement);
 
-                // add children to list if release recursively is set
-                if (releaseRecursively && !childrenList.isEmpty()) {
-                    releaseElementsWithPossibleChildren.addAll(childrenList);
-                }
+                    // add children to list if release recursively is set
+                    if (releaseRecursively && !releaseRun.getRecursiveChildren().isEmpty()) {
+                        releaseElementsWithPossibleChildren.addAll(releaseRun.getRecursiveChildren().getElements());
+                    }
 
-                addChildrenToReleaseObjects(workflowObject, releaseWithMedia, releaseRecursively, releaseObjects,
-                                            releaseElementsWithPossibleChildren, languages);
+                    releaseWindows.addToPlan(releasePlan, releaseElementsWithPossibleChildren, releaseRecursively);
 
-                // do release
-                final ReleaseObject releaseObject = new ReleaseObject(workflowScriptContext, releaseObjects);
-                releaseStatus = releaseObject.release(false, releaseRecursively, languages);
+                    // do release
+                    final ReleaseObject releaseObject = new ReleaseObject(releaseRun, releasePlan);
+                    releaseStatus = releaseObject.release(false, releaseRecursively, languages);
+                }
+                releasePlanSnapshot.logStatistics();
+                releaseRun.getReleaseStatusCache().logStatistics();
 
                 // check for never released start nodes in one or more parent folders
                 if (releaseElement.getStore().getType() == Store.Type.SITESTORE) {
-                    List<StartNode> neverReleasedStartNodes = getNeverReleasedStartNodes(releaseElement, languages);
+                    List<StartNode> neverReleasedStartNodes = getNeverReleasedStartNodes(releaseElement, languages, releaseRun.getAncestorIndex());
                     if (neverReleasedStartNodes != null && !neverReleasedStartNodes.isEmpty()) {
                         for (StartNode startNode : neverReleasedStartNodes) {
                             Logging.logInfo("IDProvider Element with uid '" + startNode.getUid() + "' and id '" + startNode.getId()
@@ -160,8 +165,18 @@ public class WfReleaseExecutable extends AbstractWorkflowExecutable {
         } else {
             releaseStatus = false;
         }
+        runContext.logCacheStatistics();
         // check if release was successful (check wfDoFail for test case)
         if (releaseStatus) {
+            // the release and the end of the workflow change the states the ContentCreator shows. The start element and its parents are
+            // published once, the released elements and the children of a recursive release by id. Parents released to make elements
+            // accessible are reported by the revisions of the project.
+            ChangeEventBus.publishWithParents(Collections.singletonList(releaseElement));
+            final ChangeEventBus changeEventBus = ChangeEventBus.forProject(workflowScriptContext.getProject().getId());
+            changeEventBus.elementsChanged(releaseRun.getReleasedIds());
+            if (releaseRecursively && releaseElement != null) {
+                changeEventBus.elementsChanged(releaseRun.getRecursiveChildren().getIds(), releaseElement.getId());
+            }
             try {
                 // refresh workflow object
                 if (isStartedOnDatasource(workflowScriptContext)) {
@@ -189,77 +204,37 @@ public class WfReleaseExecutable extends AbstractWorkflowExecutable {
         return true;
     }
 
-    private void addChildrenToReleaseObjects(final WorkflowObject workflowObject, final boolean releaseWithMedia, final boolean releaseRecursively,
-                                             final List<Object> releaseObjects, final List<IDProvider> releaseElementsWithPossibleChildren,
-                                             final Language[] languages) {
-        for (final IDProvider storeElement : releaseElementsWithPossibleChildren) {
-            // create workflowObject with current releasable storeElement
-            workflowObject.setRecursively(releaseRecursively);
-            workflowObject.setStoreElement(storeElement);
-
-            // add dependend objects to releaseObjects list
-            final Set<Object> refObjects = workflowObject.getRefObjectsFromStoreElement(releaseWithMedia, releaseRecursively, languages);
-            releaseObjects.addAll(refObjects);
-
-            // logging id's only
-            for (final Object refObject : refObjects) {
-                if (refObject instanceof IDProvider) {
-                    Logging.logInfo("IDProvider referenced Element with Id '" + ((IDProvider) refObject).getId() + "' added to release list",
-                                    LOGGER);
-                } else if (refObject instanceof ReferenceEntry) {
-                    final IDProvider referencedElement = ((ReferenceEntry) refObject).getReferencedElement();
-                    if (referencedElement != null) {
-                        Logging.logInfo("IDProvider referenced Element with Id '" + referencedElement.getId()
-                                        + "' added to release list", LOGGER);
-                    } else {
-                        Logging.logInfo("ReferenceEntry element is null. Broken Reference?", LOGGER);
-                    }
-                } else {
-                    Logging.logInfo("Element of class '" + refObject.getClass() + "' can't be fetched", LOGGER);
-                }
-            }
-
-            if (storeElement instanceof PageRef) {
-                int releaseStatus =
-                    languages.length > 0 ? ((PageRef) storeElement).getPage().getReleaseStatus(languages)
-                                         : ((PageRef) storeElement).getPage().getReleaseStatus();
-
-                if (releaseStatus != IDProvider.RELEASED) {
-                    // if object is pageref, add page to release list if unreleased
-                    releaseObjects.add(((PageRef) storeElement).getPage());
-                }
-            }
-
-            // add the object itself to releaseObjects list
-            if (!releaseObjects.contains(storeElement)) {
-                releaseObjects.add(storeElement);
-                Logging.logInfo("IDProvider Element with Id '" + storeElement.getId() + "' added to release list", LOGGER);
-            }
-        }
-    }
-
     /**
      * Get never released start nodes for each parent sitestore folder.
      *
-     * @param storeElement the store element the workflow started on
-     * @param languages    the languages to be checked
-     * @return list of never released start nodes
+     * @param storeElement  the store element the workflow started on
+     * @param languages     the languages to be checked
+     * @param ancestorIndex the parent chains of the workflow step
+     * @return list of never released start nodes, outermost folder first
      */
-    private List<StartNode> getNeverReleasedStartNodes(final IDProvider storeElement, final Language[] languages) {
-        List<StartNode> neverReleasedStartNodes = new ArrayList<>();
-
-        final IDProvider parentElement = storeElement.getParent();
-        if (parentElement != null && !"root".equals(parentElement.getUid())) {
-            neverReleasedStartNodes = getNeverReleasedStartNodes(parentElement, languages);
+    private List<StartNode> getNeverReleasedStartNodes(final IDProvider storeElement, final Language[] languages,
+                                                       final AncestorIndex ancestorIndex) {
+        // the element and its parents below the root, outermost folder first
+        final List<IDProvider> elements = new ArrayList<>();
+        elements.add(storeElement);
+        for (final IDProvider parentElement : ancestorIndex.getAncestors(storeElement)) {
+            if ("root".equals(parentElement.getUid())) {
+                break;
+            }
+            elements.add(parentElement);
         }
+        Collections.reverse(elements);
 
-        if (storeElement instanceof final SiteStoreFolder storeElementFolder) {
-            final StartNode startNode = storeElementFolder.getStartNode();
+        final List<StartNode> neverReleasedStartNodes = new ArrayList<>();
+        for (final IDProvider element : elements) {
+            if (element instanceof final SiteStoreFolder storeElementFolder) {
+                final StartNode startNode = storeElementFolder.getStartNode();
 
-            if (startNode != null) {
-                boolean isInReleaseStore = languages.length > 0 ? startNode.isReachableInReleaseStore(languages) : startNode.isInReleaseStore();
-                if (!isInReleaseStore) {
-                    neverReleasedStartNodes.add(startNode);
+                if (startNode != null) {
+                    boolean isInReleaseStore = languages.length > 0 ? startNode.isReachableInReleaseStore(languages) : startNode.isInReleaseStore();
+                    if (!isInReleaseStore) {
+                        neverReleasedStartNodes.add(startNode);
+                    }
                 }
             }
         }
@@ -18,23 +18,20 @@
 package to.be.renamed.module.release;
 
 import to.be.renamed.module.util.AbstractWorkflowExecutable;
-import to.be.renamed.module.util.FormEvaluator;
 import to.be.renamed.module.util.StoreUtil;
 import to.be.renamed.module.util.WorkflowConstants;
+import to.be.renamed.module.util.WorkflowRunContext;
 import to.be.renamed.module.util.WorkflowSessionHelper;
 import com.espirit.moddev.components.annotations.PublicComponent;
 
 import de.espirit.common.base.Logging;
 import de.espirit.firstspirit.access.Language;
-import de.espirit.firstspirit.access.ReferenceEntry;
 import de.espirit.firstspirit.access.store.IDProvider;
-import de.espirit.firstspirit.access.store.Store;
 import de.espirit.firstspirit.access.store.contentstore.ContentWorkflowable;
 import de.espirit.firstspirit.access.store.sitestore.PageRef;
 import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -61,22 +58,17 @@ public class WfReleaseTestExecutable extends AbstractWorkflowExecutable {
         final WorkflowScriptContext workflowScriptContext = (WorkflowScriptContext) params.get(WorkflowConstants.CONTEXT);
         final ResourceBundle bundle = loadResourceBundle(workflowScriptContext);
 
-        final WorkflowObject workflowObject = new WorkflowObject(workflowScriptContext);
+        final ReleaseRun releaseRun = new ReleaseRun(workflowScriptContext);
+        final WorkflowObject workflowObject = new WorkflowObject(releaseRun);
 
-        final FormEvaluator formEvaluator = new FormEvaluator(workflowScriptContext);
-        final boolean releaseWithMedia = formEvaluator.getCheckboxValue(WorkflowConstants.MEDIA_FORM_REFNAME);
-        final boolean releaseRecursively = formEvaluator.getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME);
-        final Language[] languages = formEvaluator.getLanguages();
+        final WorkflowRunContext runContext = releaseRun.getRunContext();
+        final boolean releaseWithMedia = runContext.getCheckboxValue(WorkflowConstants.MEDIA_FORM_REFNAME);
+        final boolean releaseRecursively = runContext.getCheckboxValue(WorkflowConstants.RECURSIVE_FORM_REFNAME);
+        final Language[] languages = runContext.getLanguages();
         workflowObject.setRecursively(releaseRecursively);
 
         final boolean releaseStatus;
-        final List<Object> releaseObjects = new ArrayList<>();
-
-        final List<IDProvider> childrenList = new ArrayList<>();
-        final Map<Long, Store.Type>
-            childrenIdMap =
-            WorkflowSessionHelper.readObjectFromSession(workflowScriptContext, WorkflowConstants.WF_RECURSIVE_CHILDREN);
-        childrenList.addAll(loadChildrenList(workflowScriptContext, childrenIdMap));
+        final ReleasePlan releasePlan = new ReleasePlan();
 
         final IDProvider releaseElement = workflowScriptContext.getElement();
 
@@ -98,58 +90,68 @@ public class WfReleaseTestExecutable extends AbstractWorkflowExecutable {
                     // add referenced elements from pageref excluding the pagerefs retrieved from
                     // the session since they will be added afterwards
                     final Set<Object> refObjectsFromStoreElement = workflowObject.getRefObjectsFromStoreElement(releaseWithMedia, false, languages);
-                    addReferencesExcludingPageRefsFromSession(refObjectsFromStoreElement, releasePageRefUids, releaseObjects);
+                    releasePlan.addAllExcludingPageRefs(refObjectsFromStoreElement, releasePageRefUids);
                     // add the pageref (and page)
-                    int
-                        pageReleaseStatus =
-                        languages.length > 0 ? pageRef.getPage().getReleaseStatus(languages) : pageRef.getPage().getReleaseStatus();
+                    int pageReleaseStatus = releaseRun.getReleaseStatusCache().getReleaseStatus(pageRef.getPage(), languages);
                     if (pageReleaseStatus != IDProvider.RELEASED) {
-                        releaseObjects.add(pageRef.getPage());
+                        releasePlan.add(pageRef.getPage());
                     }
-                    releaseObjects.add(pageRef);
+                    releasePlan.add(pageRef);
                 }
                 // do test release
-                final ReleaseObject releaseObject = new ReleaseObject(workflowScriptContext, releaseObjects);
+                final ReleaseObject releaseObject = new ReleaseObject(releaseRun, releasePlan);
                 releaseStatus = releaseObject.release(true, releaseRecursively, languages);
             } else if (isStartedOnDatasource(workflowScriptContext)) {
                 // do test release of referenced media if checkbox is checked
-                releaseObjects.addAll(workflowObject.getRefObjectsFromEntity(releaseWithMedia));
+                releasePlan.addAll(workflowObject.getRefObjectsFromEntity(releaseWithMedia));
                 // do test release
-                final ReleaseObject releaseObject = new ReleaseObject(workflowScriptContext, releaseObjects);
+                final ReleaseObject releaseObject = new ReleaseObject(releaseRun, releasePlan);
                 final boolean releaseStatusWithoutEntity = releaseObject.release(true, releaseRecursively, languages);
                 // test release entity
                 if (releaseStatusWithoutEntity) {
                     // do release
-                    final ReleaseObject releaseObjectEntity = new ReleaseObject(workflowScriptContext, Collections.singletonList(releaseElement));
+                    final ReleaseObject releaseObjectEntity = new ReleaseObject(releaseRun, ReleasePlan.of(releaseElement));
                     releaseStatus = releaseObjectEntity.release(true, releaseRecursively, languages);
                 } else {
                     releaseStatus = false;
                 }
             } else {
-                final List<IDProvider> releaseElementsWithPossibleChildren = new ArrayList();
-                releaseElementsWithPossibleChildren.add(releaseElement);
+                // store the collected references, so the release step can reuse them
+                final ReleasePlanSnapshot releasePlanSnapshot =
+                    ReleasePlanSnapshot.fromSession(workflowScriptContext, releaseWithMedia, releaseRecursively, languages, true);
+
+                final ReleaseWindows releaseWindows = new ReleaseWindows(releaseRun, releaseWithMedia, languages, releasePlanSnapshot);
+                final int windowSize = runContext.getPositiveIntValue(WorkflowConstants.WF_RELEASE_WINDOW_SIZE, 0);
+                if (releaseRecursively && windowSize > 0 && !releaseRun.getRecursiveChildren().isEmpty()) {
+                    releaseStatus = releaseWindows.releaseInWindows(windowSize, true);
+                    releasePlanSnapshot.writeToSession();
+                } else {
+                    final List<IDProvider> releaseElementsWithPossibleChildren = new ArrayList();
+                    releaseElementsWithPossibleChildren.add(releaseElement);
 
-                // add children to list if release recursively is set
-                if (releaseRecursively && !childrenList.isEmpty()) {
-                    releaseElementsWithPossibleChildren.addAll(childrenList);
-                }
+                    // add children to list if release recursively is set
+                    if (releaseRecursively && !releaseRun.getRecursiveChildren().isEmpty()) {
+                        releaseElementsWithPossibleChildren.addAll(releaseRun.getRecursiveChildren().getElements());
+                    }
 
-                addChildrenToReleaseObjects(releaseWithMedia, workflowObject, releaseRecursively, releaseObjects, releaseElementsWithPossibleChildren,
-                                            languages);
+                    releaseWindows.addToPlan(releasePlan, releaseElementsWithPossibleChildren, releaseRecursively);
+                    releasePlanSnapshot.writeToSession();
 
-                // do test release
-                for (final Object releaseObject : releaseObjects) {
-                    if (releaseObject instanceof IDProvider) {
-                        Logging.logInfo("Release object id: " + ((IDProvider) releaseObject).getId(), LOGGER);
+                    // do test release
+                    for (final ReleasePlan.Entry entry : releasePlan.getEntries()) {
+                        Logging.logInfo("Release object id: " + entry.element().getId(), LOGGER);
                     }
+                    // do test release
+                    final ReleaseObject releaseObject = new ReleaseObject(releaseRun, releasePlan);
+                    releaseStatus = releaseObject.release(true, releaseRecursively, languages);
                 }
-                // do test release
-                final ReleaseObject releaseObject = new ReleaseObject(workflowScriptContext, releaseObjects);
-                releaseStatus = releaseObject.release(true, releaseRecursively, languages);
+                releasePlanSnapshot.logStatistics();
+                releaseRun.getReleaseStatusCache().logStatistics();
             }
         } else {
             releaseStatus = false;
         }
+        runContext.logCacheStatistics();
         // check if test release was successful (check wfDoTestFail for test case)
         if (releaseStatus) {
             try {
@@ -171,52 +173,4 @@ public class WfReleaseTestExecutable extends AbstractWorkflowExecutable {
         }
         return true;
     }
-
-    private static void addChildrenToReleaseObjects(final boolean releaseWithMedia, final WorkflowObject workflowObject,
-                                                    final boolean releaseRecursively, final List<Object> releaseObjects,
-                                                    final List<IDProvider> releaseElementsWithPossibleChildren, final Language[] languages) {
-        for (final IDProvider storeElement : releaseElementsWithPossibleChildren) {
-            // create workflowObject with current releasable storeElement
-            workflowObject.setRecursively(releaseRecursively);
-            workflowObject.setStoreElement(storeElement);
-
-            // add dependend objects to releaseObjects list
-            final Set<Object> refObjects = workflowObject.getRefObjectsFromStoreElement(releaseWithMedia, releaseRecursively, languages);
-            releaseObjects.addAll(refObjects);
-
-            // logging id's only
-            for (final Object refObject : refObjects) {
-                if (refObject instanceof IDProvider) {
-                    Logging.logInfo("IDProvider referenced Element with Id '" + ((IDProvider) refObject).getId() + "' added to release list",
-                                    LOGGER);
-                } else if (refObject instanceof ReferenceEntry) {
-                    final IDProvider referencedElement = ((ReferenceEntry) refObject).getReferencedElement();
-                    if (referencedElement != null) {
-                        Logging.logInfo("IDProvider referenced Element with Id '" + referencedElement.getId() + "' added to release list", LOGGER);
-                    } else {
-                        Logging.logInfo("ReferenceEntry element is null. Broken Reference?", LOGGER);
-                    }
-                } else {
-                    Logging.logInfo("Element of class '" + refObject.getClass() + "' can't be fetched", LOGGER);
-                }
-            }
-
-            if (storeElement instanceof PageRef) {
-                int releaseStatus =
-                    languages.length > 0 ? ((PageRef) storeElement).getPage().getReleaseStatus(languages)
-                                         : ((PageRef) storeElement).getPage().getReleaseStatus();
-
-                if (releaseStatus != IDProvider.RELEASED) {
-                    // if object is pageref, add page to release list if unreleased
-                    releaseObjects.add(((PageRef) storeElement).getPage());
-                }
-            }
-
-            // add the object itself to releaseObjects list
-            if (!releaseObjects.contains(storeElement)) {
-                releaseObjects.add(storeElement);
-                Logging.logInfo("IDProvider Element with Id '" + storeElement.getId() + "' added to release list", LOGGER);
-            }
-        }
-    }
 }
@@ -18,7 +18,9 @@
 package to.be.renamed.module.release;
 
 import to.be.renamed.module.util.AbstractWorkflowExecutable;
+import to.be.renamed.module.util.SessionElements;
 import to.be.renamed.module.util.WorkflowConstants;
+import to.be.renamed.module.util.WorkflowRunContext;
 import to.be.renamed.module.util.WorkflowSessionHelper;
 import com.espirit.moddev.components.annotations.PublicComponent;
 
@@ -47,19 +49,18 @@ public class WfShowNotReleasedObjectsExecutable extends AbstractWorkflowExecutab
     public Object execute(Map<String, Object> params) {
         final WorkflowScriptContext workflowScriptContext = (WorkflowScriptContext) params.get(WorkflowConstants.CONTEXT);
         final ResourceBundle bundle = loadResourceBundle(workflowScriptContext);
+        final WorkflowRunContext runContext = new WorkflowRunContext(workflowScriptContext);
 
         final StringBuilder messageBuilder = new StringBuilder();
 
-        final Map<String, IDProvider.UidType>
-            notReleasedElements = WorkflowSessionHelper.readMapFromSession(workflowScriptContext, WorkflowConstants.WF_NOT_RELEASED_ELEMENTS);
+        final SessionElements notReleasedElements = SessionElements.read(workflowScriptContext, WorkflowConstants.WF_NOT_RELEASED_ELEMENTS);
         final boolean brokenReferences = WorkflowSessionHelper.readBooleanFromSession(workflowScriptContext, WorkflowConstants.WF_BROKEN_REFERENCES);
-        final Map<String, IDProvider.UidType>
-            objectsInWorkflow = WorkflowSessionHelper.readMapFromSession(workflowScriptContext, WorkflowConstants.WF_OBJECTS_IN_WORKFLOW);
+        final SessionElements objectsInWorkflow = SessionElements.read(workflowScriptContext, WorkflowConstants.WF_OBJECTS_IN_WORKFLOW);
 
         final String releaseObjectsLabel = bundle.getString("releaseObjects");
-        renderMessage(messageBuilder, notReleasedElements, releaseObjectsLabel);
+        renderMessage(messageBuilder, notReleasedElements, releaseObjectsLabel, runContext);
 
-        if (mapContainsItems(notReleasedElements) && brokenReferences) {
+        if (!notReleasedElements.isEmpty() && brokenReferences) {
             messageBuilder.append("\n\n");
         }
 
@@ -68,13 +69,13 @@ public class WfShowNotReleasedObjectsExecutable extends AbstractWorkflowExecutab
             messageBuilder.append(brokenReferencesLabel);
         }
 
-        if ((mapContainsItems(notReleasedElements) || brokenReferences) && !objectsInWorkflow.isEmpty()) {
+        if ((!notReleasedElements.isEmpty() || brokenReferences) && !objectsInWorkflow.isEmpty()) {
             messageBuilder.append("\n\n");
         }
 
         if (!objectsInWorkflow.isEmpty()) {
             final String objectsInWorkflowLabel = bundle.getString("objectsInWorkflow");
-            renderMessage(messageBuilder, objectsInWorkflow, objectsInWorkflowLabel);
+            renderMessage(messageBuilder, objectsInWorkflow, objectsInWorkflowLabel, runContext);
         }
 
         showDialog(workflowScriptContext, bundle.getString("conflicts") + ":\n\n", messageBuilder.toString());
@@ -89,15 +90,18 @@ public class WfShowNotReleasedObjectsExecutable extends AbstractWorkflowExecutab
         return true;
     }
 
-    private static boolean mapContainsItems(final Map<String, IDProvider.UidType> map) {
-        return map != null && !map.isEmpty();
-    }
-
-    private static void renderMessage(StringBuilder message, Map<String, IDProvider.UidType> elements, String label) {
-        if (elements != null && !elements.isEmpty()) {
+    private static void renderMessage(StringBuilder message, SessionElements elements, String label, WorkflowRunContext runContext) {
+        if (!elements.isEmpty()) {
             message.append(label).append(":\n\n");
-            for (Map.Entry<String, IDProvider.UidType> entry : elements.entrySet()) {
-                message.append(entry.getKey()).append("\n");
+            for (int i = 0; i < elements.getElementCount(); i++) {
+                final IDProvider element = elements.getElement(runContext.getStoreAgent(), i);
+                if (element != null) {
+                    message.append(element.getDisplayName(runContext.getLanguage())).append(" (").append(element.getUid()).append(", ")
+                        .append(element.getId()).append(")\n");
+                }
+            }
+            for (String text : elements.getTexts()) {
+                message.append(text).append("\n");
             }
         }
     }
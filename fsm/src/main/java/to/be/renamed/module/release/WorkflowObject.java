@@ -18,14 +18,14 @@
 package to.be.renamed.module.release;
 
 import to.be.renamed.module.util.FsException;
-import to.be.renamed.module.util.FsLocale;
 import to.be.renamed.module.util.ReferenceResult;
+import to.be.renamed.module.util.SessionElements;
+import to.be.renamed.module.util.WorkflowCacheService;
+import to.be.renamed.module.util.WorkflowCacheService.OutgoingReferences;
 import to.be.renamed.module.util.WorkflowConstants;
 import to.be.renamed.module.util.WorkflowSessionHelper;
 
-import de.espirit.common.TypedFilter;
 import de.espirit.common.base.Logging;
-import de.espirit.common.util.Listable;
 import de.espirit.firstspirit.access.BaseContext;
 import de.espirit.firstspirit.access.Language;
 import de.espirit.firstspirit.access.ReferenceEntry;
@@ -34,7 +34,6 @@ import de.espirit.firstspirit.access.store.Store;
 import de.espirit.firstspirit.access.store.StoreElement;
 import de.espirit.firstspirit.access.store.contentstore.Content2;
 import de.espirit.firstspirit.access.store.contentstore.ContentFolder;
-import de.espirit.firstspirit.access.store.contentstore.ContentStoreRoot;
 import de.espirit.firstspirit.access.store.contentstore.ContentWorkflowable;
 import de.espirit.firstspirit.access.store.globalstore.GCAFolder;
 import de.espirit.firstspirit.access.store.globalstore.GCAPage;
@@ -52,14 +51,11 @@ import de.espirit.firstspirit.access.store.sitestore.SiteStoreFolder;
 import de.espirit.firstspirit.access.store.templatestore.Query;
 import de.espirit.firstspirit.access.store.templatestore.TemplateStoreElement;
 import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
-import de.espirit.firstspirit.agency.StoreAgent;
 import de.espirit.or.schema.Entity;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
@@ -93,6 +89,10 @@ class WorkflowObject {
      * The ResourceBundle that contains language specific labels.
      */
     private final ResourceBundle bundle;
+    /**
+     * The state shared with the other objects of the workflow step.
+     */
+    private final ReleaseRun releaseRun;
     /**
      * The logging class to use.
      */
@@ -100,17 +100,24 @@ class WorkflowObject {
 
     private boolean releaseRecursively = false;
 
-    private final Set<IDProvider> recursiveChildrenList = new HashSet<>();
-
     /**
      * Constructor for WorkflowObject.
      *
      * @param workflowScriptContext The workflowScriptContext from the workflow.
      */
     WorkflowObject(final WorkflowScriptContext workflowScriptContext) {
-        this.workflowScriptContext = workflowScriptContext;
-        ResourceBundle.clearCache();
-        bundle = ResourceBundle.getBundle(WorkflowConstants.MESSAGES, new FsLocale(workflowScriptContext).get());
+        this(new ReleaseRun(workflowScriptContext));
+    }
+
+    /**
+     * Constructor for WorkflowObject that shares its state with the other objects of the same workflow step.
+     *
+     * @param releaseRun The state of the workflow step.
+     */
+    WorkflowObject(final ReleaseRun releaseRun) {
+        this.releaseRun = releaseRun;
+        this.workflowScriptContext = releaseRun.getWorkflowScriptContext();
+        bundle = releaseRun.getRunContext().getBundle();
         if (workflowScriptContext.getWorkflowable() instanceof ContentWorkflowable) {
             content2 = ((ContentWorkflowable) workflowScriptContext.getWorkflowable()).getContent();
             entity = ((ContentWorkflowable) workflowScriptContext.getWorkflowable()).getEntity();
@@ -118,16 +125,6 @@ class WorkflowObject {
             storeElement = (StoreElement) workflowScriptContext.getWorkflowable();
             startElement = (StoreElement) workflowScriptContext.getWorkflowable();
         }
-
-        // get elements from recursive release
-        final Map<Long, Store.Type> childrenIdMap =
-            WorkflowSessionHelper.readObjectFromSession(workflowScriptContext, WorkflowConstants.WF_RECURSIVE_CHILDREN);
-        if (childrenIdMap != null && !childrenIdMap.isEmpty()) {
-            final StoreAgent storeAgent = workflowScriptContext.requireSpecialist(StoreAgent.TYPE);
-            for (final Map.Entry<Long, Store.Type> childrenId : childrenIdMap.entrySet()) {
-                recursiveChildrenList.add(storeAgent.getStore(childrenId.getValue()).getStoreElement(childrenId.getKey()));
-            }
-        }
     }
 
 
@@ -192,7 +189,63 @@ class WorkflowObject {
 
 
     private void addOutgoingReferences(final StoreElement element, final Set<Object> referencedObjects, final boolean releaseWithMedia) {
-        addOutgoingReferences(element.getOutgoingReferences(), referencedObjects, releaseWithMedia);
+        final WorkflowCacheService cacheService = releaseRun.getRunContext().getCacheService();
+        if (cacheService == null || releaseRun.isCheckingReferences() || !(element instanceof final IDProvider idProvider)) {
+            addOutgoingReferences(element.getOutgoingReferences(), referencedObjects, releaseWithMedia);
+            return;
+        }
+        // the references are read once per revision, not once per step; only references without an element are read again as entries
+        final OutgoingReferences references = cacheService.getOutgoingReferences(idProvider, () -> summarize(element.getOutgoingReferences()));
+        if (!addReferencedElements(references, referencedObjects, releaseWithMedia)) {
+            addOutgoingReferences(element.getOutgoingReferences(), referencedObjects, releaseWithMedia);
+        }
+    }
+
+    private static OutgoingReferences summarize(final ReferenceEntry[] entries) {
+        final long[] ids = new long[entries.length];
+        final int[] attributes = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            final IDProvider referencedElement = entries[i].getReferencedElement();
+            int flags = entries[i].isType(ReferenceEntry.MEDIA_STORE_REFERENCE) ? OutgoingReferences.MEDIA : 0;
+            if (referencedElement instanceof TemplateStoreElement) {
+                flags |= OutgoingReferences.TEMPLATE;
+            }
+            if (referencedElement == null || entries[i].getReferencedObject() instanceof Entity) {
+                ids[i] = -1;
+                attributes[i] = OutgoingReferences.attributes(null, flags);
+            } else {
+                ids[i] = referencedElement.getId();
+                attributes[i] = OutgoingReferences.attributes(referencedElement.getStore().getType(), flags);
+            }
+        }
+        return new OutgoingReferences(ids, attributes);
+    }
+
+    /*
+     * Adds the elements of cached references, looked up by store and id. Returns false without adding anything if a reference has to be
+     * read as entry, e.g. because it targets an entity, is broken or its element was not found.
+     */
+    private boolean addReferencedElements(final OutgoingReferences references, final Set<Object> referencedObjects, final boolean releaseWithMedia) {
+        final long selfId = storeElement instanceof final IDProvider self ? self.getId() : -1;
+        final List<IDProvider> referencedElements = new ArrayList<>(references.size());
+        for (int i = 0; i < references.size(); i++) {
+            if (references.is(i, OutgoingReferences.TEMPLATE) || (!releaseWithMedia && references.is(i, OutgoingReferences.MEDIA))) {
+                continue;
+            }
+            final Store.Type storeType = references.getStoreType(i);
+            if (storeType == null) {
+                return false;
+            }
+            if (references.ids()[i] != selfId) {
+                final IDProvider referencedElement = releaseRun.getStoreElement(storeType, references.ids()[i]);
+                if (referencedElement == null) {
+                    return false;
+                }
+                referencedElements.add(referencedElement);
+            }
+        }
+        referencedObjects.addAll(referencedElements);
+        return true;
     }
 
 
@@ -254,8 +307,8 @@ class WorkflowObject {
         // object to store if elements can be released
         final ReferenceResult referenceResult = new ReferenceResult();
 
-        final Map<String, IDProvider.UidType> notReleasedElements = new HashMap<>();
-        final Map<String, IDProvider.UidType> elementsInWorkflow = new HashMap<>();
+        final SessionElements notReleasedElements = new SessionElements();
+        final SessionElements elementsInWorkflow = new SessionElements();
         final ArrayList<IDProvider> releaseIdProviders = new ArrayList<>();
         final ArrayList<Entity> releaseEntities = new ArrayList<>();
 
@@ -294,16 +347,12 @@ class WorkflowObject {
         checkRulesForIdProviders(releaseIdProviders, referenceResult, notReleasedElements, releaseWithMedia, elementsInWorkflow, languages);
 
         // put not released elements to session for further use
-        final Map<String, IDProvider.UidType> notReleasedElementsFromSession =
-            WorkflowSessionHelper.readMapFromSession(workflowScriptContext, WorkflowConstants.WF_NOT_RELEASED_ELEMENTS);
-        notReleasedElements.putAll(notReleasedElementsFromSession);
-        workflowScriptContext.getSession().put(WorkflowConstants.WF_NOT_RELEASED_ELEMENTS, notReleasedElements);
+        notReleasedElements.addAll(SessionElements.read(workflowScriptContext, WorkflowConstants.WF_NOT_RELEASED_ELEMENTS));
+        notReleasedElements.write(workflowScriptContext, WorkflowConstants.WF_NOT_RELEASED_ELEMENTS);
 
         // put elements in workflow to session for further use
-        final Map<String, IDProvider.UidType> elementsInWorkflowFromSession =
-            WorkflowSessionHelper.readMapFromSession(workflowScriptContext, WorkflowConstants.WF_OBJECTS_IN_WORKFLOW);
-        elementsInWorkflow.putAll(elementsInWorkflowFromSession);
-        workflowScriptContext.getSession().put(WorkflowConstants.WF_OBJECTS_IN_WORKFLOW, elementsInWorkflow);
+        elementsInWorkflow.addAll(SessionElements.read(workflowScriptContext, WorkflowConstants.WF_OBJECTS_IN_WORKFLOW));
+        elementsInWorkflow.write(workflowScriptContext, WorkflowConstants.WF_OBJECTS_IN_WORKFLOW);
 
         // remember broken references
         if (releaseRecursively && workflowScriptContext.getSession().containsKey(WorkflowConstants.WF_BROKEN_REFERENCES)) {
@@ -317,7 +366,7 @@ class WorkflowObject {
         return referenceResult;
     }
 
-    private void checkObjectInWorkflow(IDProvider idProvider, ReferenceResult referenceResult, Map<String, IDProvider.UidType> elementsInWorkflow) {
+    private void checkObjectInWorkflow(IDProvider idProvider, ReferenceResult referenceResult, SessionElements elementsInWorkflow) {
         if (idProvider == null) {
             throw new IllegalArgumentException("Object is null");
         }
@@ -332,14 +381,14 @@ class WorkflowObject {
 
 
     private void checkRulesForEntities(ArrayList<Entity> releaseEntities, ReferenceResult referenceResult,
-                                       Map<String, IDProvider.UidType> notReleasedElements) {
+                                       SessionElements notReleasedElements) {
         for (Entity entityFromReference : releaseEntities) {
-            Listable<Content2> suitableContent2Objects = getContent2ObjectsForEntity(entityFromReference);
+            final Content2 suitableContent2 = releaseRun.getContent2Index().getContent2ForEntity(entityFromReference);
 
-            if (suitableContent2Objects.toList().isEmpty()) {
+            if (suitableContent2 == null) {
                 throw new IllegalStateException("No suitable content2 object found for referenced entity!");
             } else {
-                boolean schemaIsReadonly = suitableContent2Objects.getFirst().getSchema().isReadOnly();
+                boolean schemaIsReadonly = suitableContent2.getSchema().isReadOnly();
                 if (!schemaIsReadonly && !entityFromReference.isReleased()) {
                     Logging.logWarning(
                         "No media and not released:" + entityFromReference.getIdentifier() + "#" + entityFromReference.get("fs_id"), LOGGER);
@@ -350,7 +399,7 @@ class WorkflowObject {
 
                     referenceResult.setNotMediaReleased(false);
                     referenceResult.setAllObjectsReleased(false);
-                    notReleasedElements.put(entityIdentifier, IDProvider.UidType.CONTENTSTORE_DATA);
+                    notReleasedElements.addText(entityIdentifier);
                 }
             }
             referenceResult.setOnlyMedia(false);
@@ -359,13 +408,13 @@ class WorkflowObject {
 
     private void checkRulesForIdProviders(ArrayList<IDProvider> releaseIdProviders,
                                           ReferenceResult referenceResult,
-                                          Map<String, IDProvider.UidType> notReleasedElements, boolean releaseWithMedia,
-                                          Map<String, IDProvider.UidType> elementsInWorkflow,
+                                          SessionElements notReleasedElements, boolean releaseWithMedia,
+                                          SessionElements elementsInWorkflow,
                                           final Language[] languages) {
         for (IDProvider idProvider : releaseIdProviders) {
             // check if current PAGE within PAGEREF-Release
             boolean isCurrentPage = false;
-            boolean isPartOfRelease = recursiveChildrenList.contains(idProvider) && releaseRecursively;
+            boolean isPartOfRelease = releaseRecursively && releaseRun.getRecursiveChildren().contains(idProvider);
             if (isPage(idProvider) && isPageRef(storeElement)) {
                 Page page = (Page) idProvider;
                 Page curPage = ((PageRef) storeElement).getPage();
@@ -402,20 +451,6 @@ class WorkflowObject {
     }
 
 
-    private Listable<Content2> getContent2ObjectsForEntity(final Entity entityFromReference) {
-
-        StoreAgent storeAgent = workflowScriptContext.requireSpecialist(StoreAgent.TYPE);
-        ContentStoreRoot contentStoreRoot = (ContentStoreRoot) storeAgent.getStore(Store.Type.CONTENTSTORE);
-
-        return contentStoreRoot.getChildren(new TypedFilter<>(Content2.class) {
-            @Override
-            public boolean accept(Content2 storeElement) {
-                return (storeElement.getEntityType().equals(entityFromReference.getEntityType()))
-                       && storeElement.getEntity(entityFromReference.getKeyValue()) != null;
-            }
-        }, true);
-    }
-
     private Object getReferencedObjectFrom(final ReferenceEntry object) {
         return object.getReferencedObject();
     }
@@ -428,38 +463,8 @@ class WorkflowObject {
             throw new IllegalArgumentException("ReferenceResult is null");
         }
 
-        if (isReferenceEntry(object)) {
-            ReferenceEntry referenceEntry = (ReferenceEntry) object;
-            Logging.logInfo("Check broken reference for " + referenceEntry, LOGGER);
-            if (referenceEntry.isBroken()) {
-                referenceResult.setNoBrokenReferences(false);
-                Logging.logInfo("Reference broken!", LOGGER);
-                ReferenceEntry[] usages = referenceEntry.getUsages();
-                Logging.logInfo("Current usages:", LOGGER);
-                for (ReferenceEntry usage : usages) {
-                    Logging.logInfo("Reference id: " + usage.getId(), LOGGER);
-                }
-            } else {
-                checkForBrokenRefsOnNonBrokenRefs(referenceResult, referenceEntry);
-            }
-        }
-    }
-
-    private void checkForBrokenRefsOnNonBrokenRefs(final ReferenceResult referenceResult, final ReferenceEntry referenceEntry) {
-        if (referenceEntry.getReferencedElement() != null) {
-            final ReferenceEntry[] outgoingReferences = referenceEntry.getReferencedElement().getOutgoingReferences();
-            for (ReferenceEntry reference : outgoingReferences) {
-                Logging.logInfo("Check broken reference for " + reference, LOGGER);
-                if (reference.isBroken()) {
-                    referenceResult.setNoBrokenReferences(false);
-                    Logging.logInfo("Reference broken!", LOGGER);
-                    ReferenceEntry[] usages = referenceEntry.getUsages();
-                    Logging.logInfo("Current usages:", LOGGER);
-                    for (ReferenceEntry usage : usages) {
-                        Logging.logInfo("Reference id: " + usage.getId(), LOGGER);
-                    }
-                }
-            }
+        if (isReferenceEntry(object) && releaseRun.getBrokenReferenceChecker().isBroken((ReferenceEntry) object)) {
+            referenceResult.setNoBrokenReferences(false);
         }
     }
 
@@ -509,16 +514,15 @@ class WorkflowObject {
         return object instanceof Entity;
     }
 
-    private void recordIncorrectElement(final Map<String, IDProvider.UidType> elements, final IDProvider idProvider) {
+    private void recordIncorrectElement(final SessionElements elements, final IDProvider idProvider) {
         if (elements == null) {
-            throw new IllegalArgumentException("Map is null");
+            throw new IllegalArgumentException("Elements are null");
         }
         if (idProvider == null) {
             throw new IllegalArgumentException("IDProvider is null");
         }
-        elements.put(idProvider.getDisplayName(new FsLocale(workflowScriptContext).getLanguage()) + " (" + idProvider.getUid() + ", "
-                     + idProvider.getId() + ")", idProvider.getUidType());
-
+        // the display name is resolved when the elements are shown
+        elements.add(idProvider);
     }
 
     /**
@@ -547,11 +551,9 @@ class WorkflowObject {
     private void addOutgoingReferencesFromParentObjects(final StoreElement storeElement, final Set<Object> references, final boolean releaseWithMedia,
                                                         final Language[] languages) {
         if (isNeverReleased((IDProvider) storeElement, languages) && (!releaseRecursively || !isInChildList())) {
-            StoreElement element = storeElement;
-
-            while (element.getParent() != null) {
-                element = element.getParent();
-                addOutgoingReferences(element, references, releaseWithMedia);
+            final AncestorIndex ancestorIndex = releaseRun.getAncestorIndex();
+            for (final IDProvider ancestor : ancestorIndex.getAncestors((IDProvider) storeElement)) {
+                addOutgoingReferences(ancestorIndex.getOutgoingReferences(ancestor), references, releaseWithMedia);
             }
         }
     }
@@ -575,26 +577,17 @@ class WorkflowObject {
      * Checks if the 'element' is a child of the 'startElement'.
      */
     private boolean isInChildList() {
-        StoreElement element = storeElement;
-
-        while (element != null && element.getParent() != null) {
-            element = element.getParent();
-
-            if (element.equals(startElement)) {
-                return true;
-            }
-        }
-
-        return false;
+        return storeElement instanceof final IDProvider element && startElement instanceof final IDProvider start
+               && releaseRun.getAncestorIndex().isDescendantOf(element, start.getId());
     }
 
     private boolean isChanged(final IDProvider idProvider, final Language[] languages) {
-        int releaseStatus = languages.length > 0 ? idProvider.getReleaseStatus(languages) : idProvider.getReleaseStatus();
+        int releaseStatus = releaseRun.getReleaseStatusCache().getReleaseStatus(idProvider, languages);
         return releaseStatus == IDProvider.CHANGED;
     }
 
     private boolean isNeverReleased(IDProvider idProvider, final Language[] languages) {
-        int releaseStatus = languages.length > 0 ? idProvider.getReleaseStatus(languages) : idProvider.getReleaseStatus();
+        int releaseStatus = releaseRun.getReleaseStatusCache().getReleaseStatus(idProvider, languages);
         return releaseStatus == IDProvider.NEVER_RELEASED;
     }
 
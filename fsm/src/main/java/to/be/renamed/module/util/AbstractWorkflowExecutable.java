@@ -80,10 +80,9 @@ public abstract class AbstractWorkflowExecutable implements Executable {
      * @return the resource bundle
      */
     protected ResourceBundle loadResourceBundle(final WorkflowScriptContext workflowScriptContext) {
-        ResourceBundle.clearCache();
         final FsLocale fsLocale = new FsLocale(workflowScriptContext);
         final Locale locale = fsLocale.get();
-        return ResourceBundle.getBundle(WorkflowConstants.MESSAGES, locale);
+        return MessageBundle.get(locale);
     }
 
     @Override
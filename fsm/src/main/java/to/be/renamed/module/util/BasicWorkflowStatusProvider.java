@@ -33,10 +33,17 @@ import de.espirit.firstspirit.workflow.WorkflowGroup;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 /**
  * WorkflowStatusProvider that is used for the basic workflows. Distinguishes between Page, PageReference, DocumentGroup and Dataset.
@@ -54,62 +61,138 @@ public class BasicWorkflowStatusProvider implements WebeditElementStatusProvider
 
     public static final Class<?> LOGGER = BasicWorkflowStatusProvider.class;
 
+    /**
+     * Cache variant of the state that considers all languages.
+     */
+    private static final String ALL_LANGUAGES = "all";
+
+    /**
+     * Cache variant of the states per project language, each language is computed when it is requested first.
+     */
+    private static final String PER_LANGUAGE = "perLanguage";
+
     @Override
     public @NotNull State getReleaseState(final @NotNull IDProvider element) {
-        State state;
+        return getReleaseState(element, null, new Lookups());
+    }
 
-        // Check the element
-        state = getElementReleaseState(element, null);
-        if (state != State.RELEASED) {
-            return state;
+    @Override
+    public @NotNull State getReleaseState(@NotNull final IDProvider element, @NotNull final Language language) {
+        return getReleaseState(element, language, new Lookups());
+    }
+
+    /**
+     * Gets the release states of several elements in one pass. Parents shared by siblings and pages shared by page references are checked
+     * once for all elements. The states are cached like the states of single elements.
+     *
+     * @param elements the elements
+     * @param language the language to check, null for all languages
+     * @return the states by element, in the order of the elements
+     */
+    public @NotNull Map<IDProvider, State> getReleaseStates(@NotNull final Collection<? extends IDProvider> elements, final Language language) {
+        final Lookups lookups = new Lookups();
+        final Map<IDProvider, State> states = new LinkedHashMap<>();
+        for (final IDProvider element : elements) {
+            states.put(element, getReleaseState(element, language, lookups));
         }
+        return states;
+    }
 
-        // Check the parent
-        IDProvider parent = element.getParent();
-        if (parent != null && !"root".equals(parent.getUid())) {
-            if (!parent.isInReleaseStore()) {
-                return getElementReleaseState(parent, null);
+    /*
+     * The release status part of a state is cached, the language states are kept in one entry per element that is extended by every newly
+     * requested language. Tasks do not change the revision of an element, so they are checked on every call.
+     */
+    private static State getReleaseState(final IDProvider element, final Language language, final Lookups lookups) {
+        Resolution resolution;
+        if (language == null) {
+            resolution = ReleaseStateCache.get(element, ALL_LANGUAGES, () -> computeResolution(element, null, lookups));
+        } else {
+            resolution = ReleaseStateCache.<LanguageStates>get(element, PER_LANGUAGE, states -> states.covers(language),
+                                                               previous -> addLanguageState(element, language, previous, lookups)).get(language);
+            if (resolution == null) {
+                resolution = computeResolution(element, language, lookups).state();
             }
         }
+        return resolve(element, resolution, lookups);
+    }
 
-        // Check the referencing page
-        if (element instanceof final PageRef pageRef) {
-            state = getElementReleaseState(Objects.requireNonNull(pageRef.getPage()), null);
+    /*
+     * Combines the cached release status with the current tasks of the element and of the element that decided the status.
+     */
+    private static State resolve(final IDProvider element, final Resolution resolution, final Lookups lookups) {
+        if (lookups.hasTask(element)) {
+            return State.IN_WORKFLOW;
         }
-
-        return state;
+        final boolean deciderHasTask = switch (resolution.decider()) {
+            case ELEMENT -> false;
+            case PARENT -> lookups.hasTask(lookups.getParent(element));
+            case PAGE -> lookups.hasTask(lookups.getPage((PageRef) element));
+        };
+        return deciderHasTask ? State.IN_WORKFLOW : resolution.state();
     }
 
-    @Override
-    public @NotNull State getReleaseState(@NotNull final IDProvider element, @NotNull final Language language) {
-        State state;
+    /**
+     * Computes the release status of one language and adds it to the states of the other languages computed so far.
+     *
+     * @param element  the element
+     * @param language the language to compute
+     * @param previous the states computed so far, null if there are none
+     * @param lookups  the states and parent checks of the current call
+     * @return the states and the ids of the elements they depend on
+     */
+    private static ReleaseStateCache.Entry<LanguageStates> addLanguageState(final IDProvider element, final Language language,
+                                                                            final ReleaseStateCache.Entry<LanguageStates> previous,
+                                                                            final Lookups lookups) {
+        final LanguageStates states = previous == null ? LanguageStates.of(element.getProject().getLanguages()) : previous.state();
+        if (states.covers(language)) {
+            // another thread added the language or it is not covered
+            return previous == null ? new ReleaseStateCache.Entry<>(states) : previous;
+        }
+        final ReleaseStateCache.Entry<Resolution> entry = computeResolution(element, language, lookups);
+        final Set<Long> dependencyIds = new LinkedHashSet<>();
+        for (final long[] ids : new long[][]{previous == null ? new long[0] : previous.dependencyIds(), entry.dependencyIds()}) {
+            for (final long dependencyId : ids) {
+                dependencyIds.add(dependencyId);
+            }
+        }
+        return new ReleaseStateCache.Entry<>(states.with(language, entry.state()), dependencyIds.stream().mapToLong(Long::longValue).toArray());
+    }
 
+    /**
+     * Computes the release status of an element, its parent and, for page references, its page, without their tasks.
+     *
+     * @param element  the element
+     * @param language the language to check, can be null
+     * @param lookups  the states and parent checks of the current call
+     * @return the status, the element that decided it and the ids of the elements it depends on
+     */
+    private static ReleaseStateCache.Entry<Resolution> computeResolution(final IDProvider element, final Language language, final Lookups lookups) {
         // Check the element
-        state = getElementReleaseState(element, language);
-        if (state != State.RELEASED) {
-            return state;
+        if (lookups.getStatusState(element, language) != State.RELEASED) {
+            return new ReleaseStateCache.Entry<>(new Resolution(State.CHANGED, Decider.ELEMENT));
         }
 
         // Check the parent
-        IDProvider parent = element.getParent();
+        final IDProvider parent = lookups.getParent(element);
         if (parent != null && !"root".equals(parent.getUid())) {
-            if (!parent.isReachableInReleaseStore(language)) {
-                return getElementReleaseState(parent, language);
+            if (!lookups.isReachable(parent, language)) {
+                return new ReleaseStateCache.Entry<>(new Resolution(lookups.getStatusState(parent, language), Decider.PARENT), parent.getId());
             }
         }
+        final long parentId = parent == null ? -1 : parent.getId();
 
         // Check the referencing page
         if (element instanceof final PageRef pageRef) {
-            state = getElementReleaseState(Objects.requireNonNull(pageRef.getPage()), language);
+            final Page page = lookups.getPage(pageRef);
+            return new ReleaseStateCache.Entry<>(new Resolution(lookups.getStatusState(page, language), Decider.PAGE), parentId, page.getId());
         }
 
-        return state;
+        return new ReleaseStateCache.Entry<>(new Resolution(State.RELEASED, Decider.ELEMENT), parentId);
     }
 
     @Override
     public @NotNull List<WorkflowGroup> getWorkflowGroups(final @NotNull IDProvider element) {
-        ResourceBundle.clearCache();
-        final ResourceBundle bundle = ResourceBundle.getBundle(WorkflowConstants.MESSAGES, new FsLocale(context).get());
+        final ResourceBundle bundle = MessageBundle.get(new FsLocale(context).get());
 
         String headline = switch (getReleaseState(element)) {
             case IN_WORKFLOW -> bundle.getString("inWorkflow");
@@ -122,8 +205,7 @@ public class BasicWorkflowStatusProvider implements WebeditElementStatusProvider
 
     @Override
     public @NotNull List<WorkflowGroup> getWorkflowGroups(@NotNull final IDProvider element, @NotNull final Language language) {
-        ResourceBundle.clearCache();
-        final ResourceBundle bundle = ResourceBundle.getBundle(WorkflowConstants.MESSAGES, new FsLocale(context).get());
+        final ResourceBundle bundle = MessageBundle.get(new FsLocale(context).get());
 
         String headline = switch (getReleaseState(element, language)) {
             case IN_WORKFLOW -> bundle.getString("inWorkflow");
@@ -155,16 +237,6 @@ public class BasicWorkflowStatusProvider implements WebeditElementStatusProvider
         return collectedWorkflowGroups;
     }
 
-    private static State getElementReleaseState(final IDProvider element, final Language language) {
-        if (element.hasTask()) {
-            return State.IN_WORKFLOW;
-        } else if (isNotReleased(element, language)) {
-            return State.CHANGED;
-        }
-
-        return State.RELEASED;
-    }
-
     /**
      * Checks if the given element is not currently released.
      *
@@ -180,6 +252,150 @@ public class BasicWorkflowStatusProvider implements WebeditElementStatusProvider
         }
     }
 
+    /**
+     * The element states and parent checks of one call, so elements that share a parent or a page and the languages of one element do not
+     * check them again.
+     */
+    private static final class Lookups {
+
+        private final Map<Long, Boolean> tasks = new HashMap<>();
+        private final Map<Long, Optional<IDProvider>> parents = new HashMap<>();
+        private final Map<Long, Page> pages = new HashMap<>();
+        private final Map<String, State> statusStates = new HashMap<>();
+        private final Map<String, Boolean> reachableParents = new HashMap<>();
+
+        private boolean hasTask(final IDProvider element) {
+            return tasks.computeIfAbsent(element.getId(), id -> element.hasTask());
+        }
+
+        /*
+         * CHANGED or RELEASED, tasks are not considered.
+         */
+        private State getStatusState(final IDProvider element, final Language language) {
+            return statusStates.computeIfAbsent(key(element, language), key -> isNotReleased(element, language) ? State.CHANGED : State.RELEASED);
+        }
+
+        private IDProvider getParent(final IDProvider element) {
+            return parents.computeIfAbsent(element.getId(), id -> Optional.ofNullable(element.getParent())).orElse(null);
+        }
+
+        private Page getPage(final PageRef pageRef) {
+            return pages.computeIfAbsent(pageRef.getId(), id -> Objects.requireNonNull(pageRef.getPage()));
+        }
+
+        private boolean isReachable(final IDProvider parent, final Language language) {
+            return reachableParents.computeIfAbsent(key(parent, language),
+                                                    key -> language == null ? parent.isInReleaseStore() : parent.isReachableInReleaseStore(language));
+        }
+
+        private static String key(final IDProvider element, final Language language) {
+            return language == null ? String.valueOf(element.getId()) : element.getId() + ":" + language.getAbbreviation();
+        }
+    }
+
+    /**
+     * The element whose task decides if a released element is shown as in workflow.
+     */
+    private enum Decider {
+        ELEMENT,
+        PARENT,
+        PAGE
+    }
+
+    /**
+     * The release status of an element without tasks.
+     *
+     * @param state   CHANGED or RELEASED.
+     * @param decider The element the status was taken from.
+     */
+    private record Resolution(State state, Decider decider) {
+
+    }
+
+    /**
+     * The release status of the project languages of an element, state and decider in four bits per language. The bits of a language are 0
+     * until its status is computed.
+     *
+     * @param abbreviations The abbreviations of the languages in bit order.
+     * @param bits          The encoded resolutions.
+     */
+    private record LanguageStates(String[] abbreviations, long bits) {
+
+        private static final int BITS_PER_LANGUAGE = 4;
+        private static final int MAX_LANGUAGES = Long.SIZE / BITS_PER_LANGUAGE;
+        private static final long LANGUAGE_MASK = (1L << BITS_PER_LANGUAGE) - 1;
+        private static final State[] STATES = State.values();
+        private static final Decider[] DECIDERS = Decider.values();
+
+        /**
+         * Creates the states of the first {@value #MAX_LANGUAGES} languages, none of them computed.
+         *
+         * @param languages the project languages
+         * @return the empty states
+         */
+        private static LanguageStates of(final List<Language> languages) {
+            final String[] abbreviations = new String[Math.min(languages.size(), MAX_LANGUAGES)];
+            for (int i = 0; i < abbreviations.length; i++) {
+                abbreviations[i] = languages.get(i).getAbbreviation();
+            }
+            return new LanguageStates(abbreviations, 0);
+        }
+
+        /**
+         * Checks if the status of a language is computed or the language cannot be stored.
+         *
+         * @param language the language
+         * @return false if the status of the language still has to be computed
+         */
+        private boolean covers(final Language language) {
+            final int index = indexOf(language);
+            return index < 0 || code(index) != 0;
+        }
+
+        /**
+         * Gets the release status of a language.
+         *
+         * @param language the language
+         * @return the status or null if the language is not covered or not computed
+         */
+        private Resolution get(final Language language) {
+            final int index = indexOf(language);
+            final int code = index < 0 ? 0 : code(index);
+            return code == 0 ? null : new Resolution(STATES[(code - 1) & 3], DECIDERS[(code - 1) >>> 2]);
+        }
+
+        /**
+         * Adds the release status of a language.
+         *
+         * @param language   the language
+         * @param resolution the status
+         * @return the states with the status of the language
+         */
+        private LanguageStates with(final Language language, final Resolution resolution) {
+            final int index = indexOf(language);
+            if (index < 0) {
+                return this;
+            }
+            // 0 marks a language that is not computed yet
+            final long code = 1 + (resolution.state().ordinal() | resolution.decider().ordinal() << 2);
+            final int shift = BITS_PER_LANGUAGE * index;
+            return new LanguageStates(abbreviations, bits & ~(LANGUAGE_MASK << shift) | code << shift);
+        }
+
+        private int code(final int index) {
+            return (int) (bits >>> (BITS_PER_LANGUAGE * index) & LANGUAGE_MASK);
+        }
+
+        private int indexOf(final Language language) {
+            for (int i = 0; i < abbreviations.length; i++) {
+                if (abbreviations[i].equals(language.getAbbreviation())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
     private static boolean pageHasTask(final PageRef element) {
         return element.getPage() != null && element.getPage().hasTask();
     }
@@ -0,0 +1,274 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.project.Project;
+import de.espirit.firstspirit.access.store.IDProvider;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records which elements of a project changed, so state derived from an element can be kept across calls and checked cheaply instead of
+ * being read from the store again. Every change gets the next number of a sequence. The bus keeps the last sequence number of every changed
+ * element and, propagated to all its parents, the last sequence number of the subtree below each parent. A caller remembers
+ * {@link #getSequence()} when it reads an element and later asks {@link #hasChangedSince(long, long)} or
+ * {@link #hasSubtreeChangedSince(long, long)}.
+ * <p>
+ * There is one bus per project. The workflows of this module report the elements they start on, release and delete with
+ * {@link #publish(IDProvider)} and {@link #publishWithParents(Collection)}. Other changes are reported by the {@link ChangeEventSource}s,
+ * by default the {@link RevisionPollingSource}, which reads the revisions of the project when the bus is requested with
+ * {@link #forProject(Project)}. More sources can be added with {@link #addSource(ChangeEventSource)}.
+ */
+public final class ChangeEventBus {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = ChangeEventBus.class;
+
+    /**
+     * Maximum number of elements the bus keeps a sequence number for. If more elements changed, the table is cleared and every change before
+     * counts as a change of all elements.
+     */
+    private static final int MAX_ELEMENTS = 100_000;
+
+    /**
+     * Maximum number of parents a published element is propagated to.
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * The buses by project id.
+     */
+    private static final Map<Long, ChangeEventBus> BUSES = new ConcurrentHashMap<>();
+
+    /**
+     * The sources every bus is subscribed to.
+     */
+    private static final CopyOnWriteArrayList<ChangeEventSource> SOURCES = new CopyOnWriteArrayList<>(List.of(new RevisionPollingSource()));
+
+    private final long projectId;
+
+    /**
+     * Last sequence number of each changed element.
+     */
+    private final IdMap elementSequences = new IdMap();
+
+    /**
+     * Last sequence number of a change of each element or one of its descendants.
+     */
+    private final IdMap subtreeSequences = new IdMap();
+
+    private long sequence;
+
+    /**
+     * Sequence number of the last change of all elements, changes before it are not kept per element.
+     */
+    private long allChangedSequence;
+
+    private ChangeEventBus(final long projectId) {
+        this.projectId = projectId;
+    }
+
+    /**
+     * Gets the bus of a project. The bus is created and subscribed to the sources on first use.
+     *
+     * @param projectId the id of the project
+     * @return the bus
+     */
+    public static ChangeEventBus forProject(final long projectId) {
+        final ChangeEventBus existing = BUSES.get(projectId);
+        if (existing != null) {
+            return existing;
+        }
+        final ChangeEventBus created = new ChangeEventBus(projectId);
+        final ChangeEventBus bus = BUSES.putIfAbsent(projectId, created);
+        if (bus != null) {
+            return bus;
+        }
+        for (final ChangeEventSource source : SOURCES) {
+            source.subscribe(projectId, created);
+        }
+        return created;
+    }
+
+    /**
+     * Gets the bus of a project after the sources reported the changes they poll for.
+     *
+     * @param project the project
+     * @return the bus
+     */
+    public static ChangeEventBus forProject(final Project project) {
+        final ChangeEventBus bus = forProject(project.getId());
+        for (final ChangeEventSource source : SOURCES) {
+            source.poll(project);
+        }
+        return bus;
+    }
+
+    /**
+     * Adds a source of change notifications. The buses of all projects, existing and future ones, are subscribed to it.
+     *
+     * @param source the source to add
+     */
+    public static void addSource(final ChangeEventSource source) {
+        if (SOURCES.addIfAbsent(source)) {
+            for (final ChangeEventBus bus : BUSES.values()) {
+                source.subscribe(bus.projectId, bus);
+            }
+        }
+    }
+
+    /**
+     * Removes a source of change notifications. Buses that are subscribed to it already keep the subscription.
+     *
+     * @param source the source to remove
+     */
+    static void removeSource(final ChangeEventSource source) {
+        SOURCES.remove(source);
+    }
+
+    /**
+     * Reports a change of an element to the bus of its project, e.g. because a workflow was started on it or it was released.
+     *
+     * @param element the changed element, may be null
+     */
+    public static void publish(final IDProvider element) {
+        if (element == null) {
+            return;
+        }
+        forProject(element.getProject().getId()).elementChanged(element.getId(), getAncestorIds(element));
+    }
+
+    /**
+     * Reports changes of elements and of their parents to the bus of their project, e.g. because they were released or deleted, which also
+     * changes the state of the parents.
+     *
+     * @param elements the changed elements
+     */
+    public static void publishWithParents(final Collection<? extends IDProvider> elements) {
+        for (final IDProvider element : elements) {
+            if (element == null) {
+                continue;
+            }
+            final ChangeEventBus bus = forProject(element.getProject().getId());
+            final long[] ancestorIds = getAncestorIds(element);
+            bus.elementChanged(element.getId(), ancestorIds);
+            if (ancestorIds.length > 0) {
+                bus.elementChanged(ancestorIds[0], Arrays.copyOfRange(ancestorIds, 1, ancestorIds.length));
+            }
+        }
+    }
+
+    private static long[] getAncestorIds(final IDProvider element) {
+        final long[] ancestorIds = new long[MAX_DEPTH];
+        int depth = 0;
+        for (IDProvider parent = element.getParent(); parent != null && depth < MAX_DEPTH; parent = parent.getParent()) {
+            ancestorIds[depth++] = parent.getId();
+        }
+        return Arrays.copyOf(ancestorIds, depth);
+    }
+
+    /**
+     * Records a change of an element.
+     *
+     * @param elementId   the id of the changed element
+     * @param ancestorIds the ids of its parents, the change is recorded for their subtrees
+     */
+    public synchronized void elementChanged(final long elementId, final long... ancestorIds) {
+        if (subtreeSequences.size() + ancestorIds.length + 1 > MAX_ELEMENTS) {
+            Logging.logInfo("More than " + MAX_ELEMENTS + " changed elements in project " + projectId + ", clearing the change table", LOGGER);
+            allChanged();
+        }
+        sequence++;
+        elementSequences.put(elementId, sequence);
+        subtreeSequences.put(elementId, sequence);
+        for (final long ancestorId : ancestorIds) {
+            subtreeSequences.put(ancestorId, sequence);
+        }
+    }
+
+    /**
+     * Records a change of several elements, e.g. the children of a recursive release, with one sequence number.
+     *
+     * @param elementIds  the ids of the changed elements
+     * @param ancestorIds the ids of the parents all elements share, the change is recorded for their subtrees
+     */
+    public synchronized void elementsChanged(final long[] elementIds, final long... ancestorIds) {
+        if (subtreeSequences.size() + elementIds.length + ancestorIds.length > MAX_ELEMENTS) {
+            Logging.logInfo("More than " + MAX_ELEMENTS + " changed elements in project " + projectId + ", clearing the change table", LOGGER);
+            allChanged();
+            return;
+        }
+        sequence++;
+        for (final long elementId : elementIds) {
+            elementSequences.put(elementId, sequence);
+            subtreeSequences.put(elementId, sequence);
+        }
+        for (final long ancestorId : ancestorIds) {
+            subtreeSequences.put(ancestorId, sequence);
+        }
+    }
+
+    /**
+     * Records a change of all elements of the project.
+     */
+    public synchronized void allChanged() {
+        sequence++;
+        allChangedSequence = sequence;
+        elementSequences.clear();
+        subtreeSequences.clear();
+    }
+
+    /**
+     * Gets the sequence number of the last change.
+     *
+     * @return the sequence number, 0 if no change was recorded yet.
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Checks if an element changed after a change.
+     *
+     * @param elementId the id of the element
+     * @param since     the sequence number returned by {@link #getSequence()} when the element was read
+     * @return true if the element changed since then.
+     */
+    public synchronized boolean hasChangedSince(final long elementId, final long since) {
+        return allChangedSequence > since || elementSequences.get(elementId) > since;
+    }
+
+    /**
+     * Checks if an element or one of its descendants changed after a change.
+     *
+     * @param elementId the id of the element
+     * @param since     the sequence number returned by {@link #getSequence()} when the subtree was read
+     * @return true if the element or one of its descendants changed since then.
+     */
+    public synchronized boolean hasSubtreeChangedSince(final long elementId, final long since) {
+        return allChangedSequence > since || subtreeSequences.get(elementId) > since;
+    }
+}
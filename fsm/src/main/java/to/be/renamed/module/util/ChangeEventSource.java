@@ -0,0 +1,48 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import de.espirit.firstspirit.access.project.Project;
+
+/**
+ * A source of change notifications for the elements of a project, e.g. the store or repository notifications of a server. A source is
+ * subscribed once per project, when the {@link ChangeEventBus} of the project is created, and reports every change to that bus.
+ */
+public interface ChangeEventSource {
+
+    /**
+     * Subscribes the bus of a project to the changes of its elements. The source calls
+     * {@link ChangeEventBus#elementChanged(long, long...)} or {@link ChangeEventBus#elementsChanged(long[], long...)} for every changed, added
+     * or removed element and {@link ChangeEventBus#allChanged()} if it cannot tell which elements changed, e.g.
+     * after it missed notifications.
+     *
+     * @param projectId the id of the project
+     * @param bus       the bus to report the changes to
+     */
+    void subscribe(long projectId, ChangeEventBus bus);
+
+    /**
+     * Reports the changes of a project a source has to look for itself, e.g. by reading the revisions of the project. Called every time the
+     * bus of the project is requested with {@link ChangeEventBus#forProject(Project)}, so a source should limit how often it looks.
+     *
+     * @param project the project
+     */
+    default void poll(final Project project) {
+        // sources that are notified of the changes do not poll
+    }
+}
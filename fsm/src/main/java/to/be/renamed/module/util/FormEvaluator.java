@@ -95,6 +95,40 @@ public class FormEvaluator {
         return checkboxValue;
     }
 
+    /**
+     * Method to determine the value of a boolean custom attribute of the workflow task.
+     *
+     * @param varname The name of the attribute.
+     * @return true if the attribute is set to true.
+     */
+    public boolean getFlagValue(final String varname) {
+        final Object attributeValue = workflowScriptContext.getTask().getCustomAttributes().get(varname);
+        return attributeValue != null && WorkflowConstants.TRUE.equalsIgnoreCase(String.valueOf(attributeValue).trim());
+    }
+
+    /**
+     * Method to determine the value of a numeric custom attribute of the workflow task.
+     *
+     * @param varname      The name of the attribute.
+     * @param defaultValue The value to use if the attribute is not set or not a positive number.
+     * @return the value of the attribute.
+     */
+    public int getPositiveIntValue(final String varname, final int defaultValue) {
+        final Object attributeValue = workflowScriptContext.getTask().getCustomAttributes().get(varname);
+        if (attributeValue != null) {
+            try {
+                final int value = Integer.parseInt(String.valueOf(attributeValue).trim());
+                if (value > 0) {
+                    return value;
+                }
+            } catch (final NumberFormatException e) {
+                Logging.logDebug("Custom attribute '" + varname + "' is no number: " + e.getMessage(), LOGGER);
+            }
+            Logging.logWarning("Custom attribute '" + varname + "' is no positive number (using default value '" + defaultValue + "')", LOGGER);
+        }
+        return defaultValue;
+    }
+
     public Language[] getLanguages() {
         List<Language> languages = new ArrayList<>();
         final FormData formData = workflowScriptContext.getFormData();
@@ -17,7 +17,9 @@
  */
 package to.be.renamed.module.util;
 
+import de.espirit.common.base.Logging;
 import de.espirit.firstspirit.access.Language;
+import de.espirit.firstspirit.access.Revision;
 import de.espirit.firstspirit.access.store.IDProvider;
 import de.espirit.firstspirit.access.store.contentstore.Content2;
 import de.espirit.firstspirit.access.store.contentstore.Dataset;
@@ -34,28 +36,86 @@ import de.espirit.firstspirit.agency.ValidationAgent;
 import de.espirit.or.schema.Entity;
 
 import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Convenience class to determine if a form is valid.
+ * <p>
+ * The agents used for the validation are resolved once per instance, so one instance should be used for all elements of a workflow step.
+ * An instance may be used by several threads.
+ * The results of IDProviders are kept by the instance, so an element is validated only once per workflow step. With the cache service of
+ * the module they are also shared with later steps and runs, but only as long as the project has not changed: a result also depends on
+ * the template or schema and on other elements, so it is kept for the project revision that was current when the step started
+ * validating, and for the project languages.
  *
  * @author stephan
  * @since 1.0
  */
 public class FormValidator {
 
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = FormValidator.class;
+
     /**
      * The workflowScriptContext from the workflow.
      */
     private final WorkflowScriptContext workflowScriptContext;
 
+    /**
+     * The agent that validates the forms, resolved on first use.
+     */
+    private ValidationAgent validationAgent;
+
+    /**
+     * The agent that provides the project languages, resolved on first use.
+     */
+    private LanguageAgent languageAgent;
+
+    /**
+     * The cache service of the module, null if it is not running.
+     */
+    private final WorkflowCacheService cacheService;
+
+    /**
+     * The id of the project revision the forms are validated in, -1 if it is unknown and the results are not shared with other steps.
+     */
+    private long revisionId = -1;
+
+    /**
+     * The abbreviations of the project languages, resolved with the agents.
+     */
+    private String languageAbbreviations;
+
+    /**
+     * The validation results by store and element id. An empty result means the form is valid.
+     */
+    private final Map<String, Optional<String>> validationResults = new ConcurrentHashMap<>();
+
     /**
      * Constructor for FormValidator.
      *
      * @param workflowScriptContext The workflowScriptContext from the workflow.
      */
     public FormValidator(WorkflowScriptContext workflowScriptContext) {
+        this(workflowScriptContext, null);
+    }
+
+    /**
+     * Constructor for FormValidator that shares the results with other workflow steps.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     * @param cacheService          The cache service of the module, may be null.
+     */
+    public FormValidator(WorkflowScriptContext workflowScriptContext, WorkflowCacheService cacheService) {
         this.workflowScriptContext = workflowScriptContext;
+        this.cacheService = cacheService;
     }
 
     /**
@@ -65,7 +125,25 @@ public class FormValidator {
      * @return The error String of null.
      */
     public String isValid(IDProvider idProvider) {
-        return isValid(idProvider, null, null);
+        if (idProvider == null) {
+            return isValid(idProvider, null, null);
+        }
+        final String key = idProvider.getStore().getType() + ":" + idProvider.getId();
+        final Optional<String> cachedResult = validationResults.get(key);
+        if (cachedResult != null) {
+            Logging.logDebug("Reused validation result of " + key, LOGGER);
+            return cachedResult.orElse(null);
+        }
+        resolveAgents();
+        final Optional<String> validationResult;
+        if (cacheService == null || revisionId < 0) {
+            validationResult = Optional.ofNullable(isValid(idProvider, null, null));
+        } else {
+            validationResult = cacheService.getValidationResult(idProvider, revisionId, languageAbbreviations,
+                                                                () -> Optional.ofNullable(isValid(idProvider, null, null)));
+        }
+        validationResults.put(key, validationResult);
+        return validationResult.orElse(null);
     }
 
 
@@ -90,12 +168,7 @@ public class FormValidator {
      */
     private String isValid(IDProvider idProvider, Content2 content2, Entity entity) {
         MultiFormValidationReport validationReportsRel;
-        SpecialistsBroker broker = workflowScriptContext.getUserService().getConnection().getBroker();
-        BrokerAgent brokerAgent = broker.requireSpecialist(BrokerAgent.TYPE);
-        SpecialistsBroker projectBroker = brokerAgent.getBrokerByProjectName(workflowScriptContext.getProject().getName());
-
-        LanguageAgent languageAgent = projectBroker.requireSpecialist(LanguageAgent.TYPE);
-        ValidationAgent validationAgent = projectBroker.requireSpecialist(ValidationAgent.TYPE);
+        resolveAgents();
         String element = "";
         String validationResult = null;
 
@@ -154,4 +227,31 @@ public class FormValidator {
         return validationResult;
     }
 
+    private synchronized void resolveAgents() {
+        if (validationAgent == null) {
+            SpecialistsBroker broker = workflowScriptContext.getUserService().getConnection().getBroker();
+            BrokerAgent brokerAgent = broker.requireSpecialist(BrokerAgent.TYPE);
+            SpecialistsBroker projectBroker = brokerAgent.getBrokerByProjectName(workflowScriptContext.getProject().getName());
+
+            languageAgent = projectBroker.requireSpecialist(LanguageAgent.TYPE);
+            languageAbbreviations = languageAgent.getLanguages().stream().map(Language::getAbbreviation).collect(Collectors.joining(","));
+            if (cacheService != null) {
+                revisionId = getHeadRevisionId();
+            }
+            validationAgent = projectBroker.requireSpecialist(ValidationAgent.TYPE);
+        }
+    }
+
+    /*
+     * Read before any form is validated, so a result is never kept for a revision older than the data it was computed from.
+     */
+    private long getHeadRevisionId() {
+        try {
+            final Revision head = workflowScriptContext.getProject().getRevision(new Date());
+            return head == null ? -1 : head.getId();
+        } catch (final RuntimeException e) {
+            Logging.logWarning("Reading the revision of the project failed, validation results are not shared", e, LOGGER);
+            return -1;
+        }
+    }
 }
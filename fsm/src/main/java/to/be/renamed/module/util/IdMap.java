@@ -0,0 +1,126 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+/**
+ * Map from element id to a long value that stores both as primitive longs (open addressing with linear probing). Ids that are not contained
+ * map to 0. Not thread-safe.
+ */
+public class IdMap {
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    /**
+     * Creates an empty map.
+     */
+    public IdMap() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty map that can hold the given number of ids without growing.
+     *
+     * @param expectedSize the expected number of ids
+     */
+    public IdMap(final int expectedSize) {
+        keys = IdSlots.newSlots(IdSlots.capacityFor(expectedSize));
+        values = new long[keys.length];
+    }
+
+    /**
+     * Gets the value of an id.
+     *
+     * @param id the id
+     * @return the value, 0 if the id is not contained
+     */
+    public long get(final long id) {
+        final int mask = keys.length - 1;
+        int index = IdSlots.hash(id) & mask;
+        long key;
+        while ((key = keys[index]) != IdSlots.FREE) {
+            if (key == id) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the value of an id.
+     *
+     * @param id    the id
+     * @param value the value
+     */
+    public void put(final long id, final long value) {
+        if (id == IdSlots.FREE) {
+            throw new IllegalArgumentException("Unsupported id: " + id);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        insert(id, value);
+    }
+
+    /**
+     * Gets the number of ids in the map.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all ids.
+     */
+    public void clear() {
+        keys = IdSlots.newSlots(16);
+        values = new long[keys.length];
+        size = 0;
+    }
+
+    private void insert(final long id, final long value) {
+        final int mask = keys.length - 1;
+        int index = IdSlots.hash(id) & mask;
+        long key;
+        while ((key = keys[index]) != IdSlots.FREE && key != id) {
+            index = (index + 1) & mask;
+        }
+        if (key == IdSlots.FREE) {
+            keys[index] = id;
+            size++;
+        }
+        values[index] = value;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+        keys = IdSlots.newSlots(capacity);
+        values = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != IdSlots.FREE) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import java.util.Arrays;
+
+/**
+ * Set of element ids that stores the ids as primitive longs (open addressing with linear probing). Not thread-safe.
+ */
+public class IdSet {
+
+    private long[] slots;
+    private int size;
+
+    /**
+     * Creates an empty set.
+     */
+    public IdSet() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty set that can hold the given number of ids without growing.
+     *
+     * @param expectedSize the expected number of ids
+     */
+    public IdSet(final int expectedSize) {
+        slots = IdSlots.newSlots(IdSlots.capacityFor(expectedSize));
+    }
+
+    /**
+     * Adds an id to the set.
+     *
+     * @param id the id to add
+     * @return true if the id was not contained before
+     */
+    public boolean add(final long id) {
+        if (id == IdSlots.FREE) {
+            throw new IllegalArgumentException("Unsupported id: " + id);
+        }
+        if ((size + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return insert(slots, id);
+    }
+
+    /**
+     * Checks if the set contains an id.
+     *
+     * @param id the id to check
+     * @return true if the id is contained
+     */
+    public boolean contains(final long id) {
+        final int mask = slots.length - 1;
+        int index = IdSlots.hash(id) & mask;
+        long slot;
+        while ((slot = slots[index]) != IdSlots.FREE) {
+            if (slot == id) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes an id from the set.
+     *
+     * @param id the id to remove
+     * @return true if the id was contained
+     */
+    public boolean remove(final long id) {
+        final int mask = slots.length - 1;
+        int index = IdSlots.hash(id) & mask;
+        long slot;
+        while ((slot = slots[index]) != IdSlots.FREE) {
+            if (slot == id) {
+                slots[index] = IdSlots.FREE;
+                size--;
+                // re-insert the rest of the probe sequence so lookups do not stop at the new gap
+                index = (index + 1) & mask;
+                while ((slot = slots[index]) != IdSlots.FREE) {
+                    slots[index] = IdSlots.FREE;
+                    size--;
+                    insert(slots, slot);
+                    index = (index + 1) & mask;
+                }
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of ids in the set.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the set is empty.
+     *
+     * @return true if the set contains no ids
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the ids of the set in ascending order.
+     *
+     * @return a new array with the ids
+     */
+    public long[] toSortedArray() {
+        final long[] ids = new long[size];
+        int i = 0;
+        for (final long slot : slots) {
+            if (slot != IdSlots.FREE) {
+                ids[i++] = slot;
+            }
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private boolean insert(final long[] target, final long id) {
+        final int mask = target.length - 1;
+        int index = IdSlots.hash(id) & mask;
+        long slot;
+        while ((slot = target[index]) != IdSlots.FREE) {
+            if (slot == id) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        target[index] = id;
+        size++;
+        return true;
+    }
+
+    private void rehash(final int capacity) {
+        final long[] old = slots;
+        slots = IdSlots.newSlots(capacity);
+        size = 0;
+        for (final long slot : old) {
+            if (slot != IdSlots.FREE) {
+                insert(slots, slot);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toSortedArray());
+    }
+}
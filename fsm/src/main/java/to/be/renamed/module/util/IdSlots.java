@@ -0,0 +1,72 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import java.util.Arrays;
+
+/**
+ * The slot handling shared by the primitive id collections {@link IdSet} and {@link IdMap}: open addressing with linear probing over a
+ * power of two table.
+ */
+final class IdSlots {
+
+    /**
+     * Marker for a free slot, no valid element id.
+     */
+    static final long FREE = Long.MIN_VALUE;
+
+    private IdSlots() {
+    }
+
+    /**
+     * Creates a table with all slots free.
+     *
+     * @param capacity the number of slots, a power of two
+     * @return the table
+     */
+    static long[] newSlots(final int capacity) {
+        final long[] newSlots = new long[capacity];
+        Arrays.fill(newSlots, FREE);
+        return newSlots;
+    }
+
+    /**
+     * Gets the capacity that holds the given number of ids at a load factor of at most one half.
+     *
+     * @param expectedSize the expected number of ids
+     * @return the capacity, a power of two
+     */
+    static int capacityFor(final int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Spreads the bits of an id, so consecutive ids do not form long probe sequences.
+     *
+     * @param id the id
+     * @return the hash, to be masked with the capacity - 1
+     */
+    static int hash(final long id) {
+        final long mixed = id * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides the language specific labels of the module. The labels of a locale are loaded once and kept for the lifetime of the module, the
+ * bundle cache of the JVM is not cleared.
+ * <p>
+ * For development the labels can be reloaded on every access by setting the system property {@value #RELOAD_PROPERTY} to true. This only
+ * clears the bundles loaded by the class loader of the module.
+ */
+public final class MessageBundle {
+
+    /**
+     * System property that enables reloading the labels on every access.
+     */
+    public static final String RELOAD_PROPERTY = "basicworkflows.messages.reload";
+
+    /**
+     * The bundles by locale.
+     */
+    private static final Map<Locale, ResourceBundle> BUNDLES = new ConcurrentHashMap<>();
+
+    private MessageBundle() {
+    }
+
+    /**
+     * Gets the labels for a locale.
+     *
+     * @param locale The locale of the labels.
+     * @return the resource bundle.
+     */
+    public static ResourceBundle get(final Locale locale) {
+        if (Boolean.getBoolean(RELOAD_PROPERTY)) {
+            final ClassLoader classLoader = MessageBundle.class.getClassLoader();
+            ResourceBundle.clearCache(classLoader);
+            return ResourceBundle.getBundle(WorkflowConstants.MESSAGES, locale, classLoader);
+        }
+        return BUNDLES.computeIfAbsent(locale,
+                                       key -> ResourceBundle.getBundle(WorkflowConstants.MESSAGES, key, MessageBundle.class.getClassLoader()));
+    }
+}
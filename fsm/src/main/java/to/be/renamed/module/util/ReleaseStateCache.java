@@ -0,0 +1,160 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import de.espirit.firstspirit.access.store.IDProvider;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caches the release states the status provider computes for the ContentCreator, by project, element, revision and variant (e.g. the
+ * state for all languages or the states per language). A changed element gets a new revision and therefore a new entry. Entries expire
+ * after {@value #DEFAULT_TTL_MILLIS} ms (configurable with the system property {@value #TTL_PROPERTY}, 0 disables the cache), which bounds
+ * the time a state that depends on another element (parent folder, page of a page reference) can be outdated. Tasks do not change the
+ * revision, so the cached states must not depend on them.
+ * <p>
+ * A cached state is not used anymore once the {@link ChangeEventBus} of the project reports a change of the element or of an element the
+ * state depends on. The workflows of this module report the elements they start on, release and delete, other changes are reported by the
+ * {@link RevisionPollingSource} within its polling interval, or picked up when the entries expire.
+ */
+public final class ReleaseStateCache {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = ReleaseStateCache.class;
+
+    /**
+     * System property for the time in milliseconds a release state is cached.
+     */
+    public static final String TTL_PROPERTY = "basicworkflows.releaseState.ttl";
+
+    /**
+     * Time in milliseconds a release state is cached if the system property is not set.
+     */
+    public static final long DEFAULT_TTL_MILLIS = 10_000L;
+
+    /**
+     * Maximum number of cached release states.
+     */
+    private static final int MAX_ENTRIES = 5000;
+
+    /**
+     * The cached release states, least recently used first.
+     */
+    private static final Map<String, CachedState> STATES =
+        Collections.synchronizedMap(new LinkedHashMap<String, CachedState>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedState> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        });
+
+    private ReleaseStateCache() {
+    }
+
+    /**
+     * Gets the release state of an element from the cache or computes it.
+     *
+     * @param <T>     The type of the state.
+     * @param element The element.
+     * @param variant The variant of the state, states of different types must use different variants.
+     * @param loader  Computes the state if it is not cached.
+     * @return the release state.
+     */
+    static <T> T get(final IDProvider element, final String variant, final Supplier<Entry<T>> loader) {
+        return get(element, variant, state -> true, previous -> loader.get());
+    }
+
+    /**
+     * Gets a release state that is computed in parts, e.g. language by language, from the cache or extends it. If the cached state does not
+     * cover the request, the loader extends it and the extended state replaces the cached one. The extended state expires with the cached
+     * state and is outdated by changes since the cached state was computed.
+     *
+     * @param <T>     The type of the state.
+     * @param element The element.
+     * @param variant The variant of the state, states of different types must use different variants.
+     * @param covers  Checks if a cached state covers the request.
+     * @param loader  Computes or extends the state, gets the cached state or null if there is none.
+     * @return the release state.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T get(final IDProvider element, final String variant, final Predicate<T> covers, final UnaryOperator<Entry<T>> loader) {
+        final long ttl = Long.getLong(TTL_PROPERTY, DEFAULT_TTL_MILLIS);
+        final String key = ttl > 0 ? getKey(element, variant) : null;
+        if (key == null) {
+            return loader.apply(null).state();
+        }
+        final long now = System.currentTimeMillis();
+        final ChangeEventBus changeEventBus = ChangeEventBus.forProject(element.getProject());
+        CachedState cachedState = STATES.get(key);
+        if (cachedState != null && (cachedState.expires() <= now || cachedState.hasChanged(changeEventBus))) {
+            cachedState = null;
+        }
+        if (cachedState != null && covers.test((T) cachedState.entry().state())) {
+            return (T) cachedState.entry().state();
+        }
+        // take the sequence before computing, so changes during the computation outdate the entry
+        final long sequence = cachedState == null ? changeEventBus.getSequence() : cachedState.sequence();
+        final long expires = cachedState == null ? now + ttl : cachedState.expires();
+        final Entry<T> entry = loader.apply(cachedState == null ? null : (Entry<T>) cachedState.entry());
+        STATES.put(key, new CachedState(element.getId(), entry, sequence, expires));
+        return entry.state();
+    }
+
+    /*
+     * Elements without a revision are not cached.
+     */
+    private static String getKey(final IDProvider element, final String variant) {
+        if (element.getRevision() == null) {
+            return null;
+        }
+        return element.getProject().getId() + ":" + element.getId() + ":" + element.getRevision().getId() + ":" + variant;
+    }
+
+    /**
+     * A computed release state together with the ids of the other elements it was derived from.
+     *
+     * @param <T>           The type of the state.
+     * @param state         The release state.
+     * @param dependencyIds The ids of the parent folder or page the state depends on.
+     */
+    record Entry<T>(T state, long... dependencyIds) {
+
+    }
+
+    private record CachedState(long elementId, Entry<?> entry, long sequence, long expires) {
+
+        boolean hasChanged(final ChangeEventBus changeEventBus) {
+            if (changeEventBus.hasChangedSince(elementId, sequence)) {
+                return true;
+            }
+            for (final long dependencyId : entry.dependencyIds()) {
+                if (changeEventBus.hasChangedSince(dependencyId, sequence)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
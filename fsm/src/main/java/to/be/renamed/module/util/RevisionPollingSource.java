@@ -0,0 +1,168 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.Revision;
+import de.espirit.firstspirit.access.RevisionMetaData;
+import de.espirit.firstspirit.access.project.Project;
+import de.espirit.firstspirit.access.store.BasicElementInfo;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reports the changes of a project to its {@link ChangeEventBus} by reading the revisions created since the last poll, so changes made
+ * outside the workflows of this module and on other servers of a cluster reach the bus too. A project is polled at most every
+ * {@value #DEFAULT_INTERVAL_MILLIS} ms (configurable with the system property {@value #INTERVAL_PROPERTY}, 0 disables polling), by one
+ * thread at a time. The other callers do not wait for the poll, so the status lookups of the ContentCreator stay cheap.
+ * <p>
+ * The created, modified, deleted and released elements of every revision are reported as changed elements, their parents are not known to
+ * a revision and not reported. If more than {@value #MAX_REVISIONS} revisions were created since the last poll or they cannot be read, all
+ * elements count as changed.
+ */
+public final class RevisionPollingSource implements ChangeEventSource {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = RevisionPollingSource.class;
+
+    /**
+     * System property with the minimum time in ms between two polls of a project.
+     */
+    static final String INTERVAL_PROPERTY = "basicworkflows.changePolling.interval";
+
+    /**
+     * Minimum time in ms between two polls of a project, if the system property is not set.
+     */
+    static final long DEFAULT_INTERVAL_MILLIS = 2_000;
+
+    /**
+     * Maximum number of revisions read in one poll.
+     */
+    private static final int MAX_REVISIONS = 1_000;
+
+    /**
+     * The polled revisions by project id.
+     */
+    private final Map<Long, PollState> states = new ConcurrentHashMap<>();
+
+    @Override
+    public void subscribe(final long projectId, final ChangeEventBus bus) {
+        states.put(projectId, new PollState(bus));
+    }
+
+    @Override
+    public void poll(final Project project) {
+        final long interval = Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MILLIS);
+        final PollState state = states.get(project.getId());
+        if (interval <= 0 || state == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        // lookups never wait for a poll, while one thread polls the others go on with the changes known so far
+        if (now < state.nextPoll || !state.lock.tryLock()) {
+            return;
+        }
+        try {
+            if (now < state.nextPoll) {
+                return;
+            }
+            state.nextPoll = now + interval;
+            try {
+                final Revision head = project.getRevision(new Date(now));
+                if (head == null || head.getId() == state.revisionId) {
+                    return;
+                }
+                if (state.revisionId < 0) {
+                    // the changes before the first poll are unknown
+                    state.bus.allChanged();
+                } else {
+                    report(project, state, head);
+                }
+                state.revisionId = head.getId();
+            } catch (final RuntimeException e) {
+                Logging.logWarning("Reading the revisions of project " + project.getId() + " failed, all elements count as changed", e, LOGGER);
+                state.bus.allChanged();
+            }
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /*
+     * The start revision was reported by the last poll, so it is skipped whether it is part of the result or not.
+     */
+    private static void report(final Project project, final PollState state, final Revision head) {
+        final List<Revision> revisions = project.getRevisions(project.getRevision(state.revisionId), head, MAX_REVISIONS + 1, null);
+        if (revisions.size() > MAX_REVISIONS) {
+            Logging.logInfo("More than " + MAX_REVISIONS + " new revisions in project " + project.getId() + ", all elements count as changed",
+                            LOGGER);
+            state.bus.allChanged();
+            return;
+        }
+        for (final Revision revision : revisions) {
+            if (revision.getId() == state.revisionId) {
+                continue;
+            }
+            final RevisionMetaData metaData = revision.getMetaData();
+            report(state.bus, metaData.getCreatedElements());
+            report(state.bus, metaData.getModifiedElements());
+            report(state.bus, metaData.getDeletedElements());
+            report(state.bus, metaData.getReleasedElements());
+        }
+    }
+
+    private static void report(final ChangeEventBus bus, final Collection<BasicElementInfo> elements) {
+        for (final BasicElementInfo element : elements) {
+            bus.elementChanged(element.getNodeId());
+        }
+    }
+
+    /**
+     * The last polled revision of a project.
+     */
+    private static final class PollState {
+
+        private final ChangeEventBus bus;
+
+        /**
+         * Held by the thread that polls the project.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * The id of the last reported revision, -1 before the first poll.
+         */
+        private long revisionId = -1;
+
+        /**
+         * The time in ms before which the project is not polled again.
+         */
+        private volatile long nextPoll;
+
+        private PollState(final ChangeEventBus bus) {
+            this.bus = bus;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.Store;
+import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
+import de.espirit.firstspirit.agency.StoreAgent;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A list of store elements that is kept in the workflow session. Elements are held as parallel arrays of ids and store codes; an element
+ * added twice is kept once. The list is written to the session as a byte array in the order the elements were added: runs of elements of
+ * the same store, each id stored as the varint encoded difference to the previous id. So the indices of a list read from the session match
+ * the indices of the list that was written. Display names are not stored, they are resolved when the elements are shown. Lines for objects
+ * without a store id (e.g. entities) are kept as text.
+ * <p>
+ * Session values written by older versions of the module ({@code Map<Long, Store.Type>} or maps keyed by display text) can still be read.
+ * Not thread-safe.
+ */
+public final class SessionElements {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = SessionElements.class;
+
+    /**
+     * Version of the encoding, the first byte of an encoded list.
+     */
+    private static final byte FORMAT_VERSION = 2;
+
+    /**
+     * The store types by the code written to the session. Code 0 marks elements without a store type. The codes are part of the format and
+     * must not change; new store types are appended.
+     */
+    private static final Store.Type[] STORE_TYPES = {
+        null,
+        Store.Type.CONTENTSTORE,
+        Store.Type.GLOBALSTORE,
+        Store.Type.MEDIASTORE,
+        Store.Type.PAGESTORE,
+        Store.Type.SITESTORE,
+        Store.Type.TEMPLATESTORE
+    };
+
+    private long[] ids;
+    private byte[] storeCodes;
+    private int elementCount;
+
+    /**
+     * The ids added so far by store code, to skip elements added twice.
+     */
+    private final IdSet[] addedIds = new IdSet[STORE_TYPES.length];
+
+    /**
+     * Lines of objects without a store id.
+     */
+    private final Set<String> texts = new LinkedHashSet<>();
+
+    /**
+     * Creates an empty list.
+     */
+    public SessionElements() {
+        this(16);
+    }
+
+    private SessionElements(final int capacity) {
+        ids = new long[Math.max(capacity, 1)];
+        storeCodes = new byte[ids.length];
+    }
+
+    /**
+     * Adds an element.
+     *
+     * @param element The element to add.
+     */
+    public void add(final IDProvider element) {
+        add(element.getId(), element.getStore().getType());
+    }
+
+    /**
+     * Adds an element by id and store type. Nothing is added if the list already contains the element.
+     *
+     * @param id        The id of the element.
+     * @param storeType The store of the element, may be null.
+     * @throws IllegalArgumentException if the store type has no code in the session format or the id is {@link Long#MIN_VALUE}.
+     */
+    public void add(final long id, final Store.Type storeType) {
+        addCode(id, storeCode(storeType));
+    }
+
+    private void addCode(final long id, final int storeCode) {
+        if (addedIds[storeCode] == null) {
+            addedIds[storeCode] = new IdSet();
+        }
+        if (!addedIds[storeCode].add(id)) {
+            return;
+        }
+        if (elementCount == ids.length) {
+            ids = Arrays.copyOf(ids, elementCount * 2);
+            storeCodes = Arrays.copyOf(storeCodes, elementCount * 2);
+        }
+        ids[elementCount] = id;
+        storeCodes[elementCount] = (byte) storeCode;
+        elementCount++;
+    }
+
+    /**
+     * Adds the line of an object without a store id.
+     *
+     * @param text The line to show.
+     */
+    public void addText(final String text) {
+        texts.add(text);
+    }
+
+    /**
+     * Adds all elements and lines of another list.
+     *
+     * @param other The list to add.
+     */
+    public void addAll(final SessionElements other) {
+        for (int i = 0; i < other.elementCount; i++) {
+            addCode(other.ids[i], other.storeCodes[i]);
+        }
+        texts.addAll(other.texts);
+    }
+
+    /**
+     * Gets the number of elements.
+     *
+     * @return the number of elements, without the lines.
+     */
+    public int getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * Gets the id of an element.
+     *
+     * @param index The index of the element.
+     * @return the id.
+     */
+    public long getId(final int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    /**
+     * Gets the store type of an element.
+     *
+     * @param index The index of the element.
+     * @return the store type, null if it is unknown.
+     */
+    public Store.Type getStoreType(final int index) {
+        checkIndex(index);
+        return STORE_TYPES[storeCodes[index]];
+    }
+
+    /**
+     * Resolves an element from its store.
+     *
+     * @param storeAgent The store agent to use.
+     * @param index      The index of the element.
+     * @return the element or null if it does not exist anymore or its store is unknown.
+     */
+    public IDProvider getElement(final StoreAgent storeAgent, final int index) {
+        final Store.Type storeType = getStoreType(index);
+        final IDProvider element = storeType == null ? null : storeAgent.getStore(storeType).getStoreElement(ids[index]);
+        if (element == null) {
+            Logging.logWarning("Found no element with id " + ids[index] + " in store " + storeType, LOGGER);
+        }
+        return element;
+    }
+
+    /**
+     * Gets the lines of the objects without a store id.
+     *
+     * @return an unmodifiable collection of the lines.
+     */
+    public Collection<String> getTexts() {
+        return Collections.unmodifiableSet(texts);
+    }
+
+    /**
+     * Checks if the list contains neither elements nor lines.
+     *
+     * @return true if the list is empty.
+     */
+    public boolean isEmpty() {
+        return elementCount == 0 && texts.isEmpty();
+    }
+
+    /**
+     * Writes the encoded list to the workflow session.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     * @param key                   The session key.
+     */
+    public void write(final WorkflowScriptContext workflowScriptContext, final String key) {
+        workflowScriptContext.getSession().put(key, encode());
+    }
+
+    /**
+     * Reads a list from the workflow session.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     * @param key                   The session key.
+     * @return the list, empty if the session contains no value for the key.
+     */
+    public static SessionElements read(final WorkflowScriptContext workflowScriptContext, final String key) {
+        final Object value = WorkflowSessionHelper.readObjectFromSession(workflowScriptContext, key);
+        if (value == null) {
+            return new SessionElements();
+        }
+        if (value instanceof final byte[] data) {
+            return decode(data);
+        }
+        if (value instanceof final Map<?, ?> map) {
+            return fromMap(map);
+        }
+        Logging.logWarning("Unsupported session value for " + key + ": " + value.getClass().getName(), LOGGER);
+        return new SessionElements();
+    }
+
+    /**
+     * Encodes the list. The list is not changed, the decoded list has the same elements in the same order.
+     *
+     * @return the encoded list.
+     */
+    public byte[] encode() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(16 + elementCount * 3);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, elementCount);
+        long previous = 0;
+        int runStart = 0;
+        while (runStart < elementCount) {
+            int runEnd = runStart + 1;
+            while (runEnd < elementCount && storeCodes[runEnd] == storeCodes[runStart]) {
+                runEnd++;
+            }
+            out.write(storeCodes[runStart]);
+            writeVarLong(out, runEnd - runStart);
+            for (int i = runStart; i < runEnd; i++) {
+                writeVarLong(out, zigZag(ids[i] - previous));
+                previous = ids[i];
+            }
+            runStart = runEnd;
+        }
+
+        writeVarLong(out, texts.size());
+        for (final String text : texts) {
+            final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a list created by {@link #encode()}.
+     *
+     * @param data The encoded list.
+     * @return the decoded list.
+     * @throws IllegalArgumentException if the data is not an encoded list of this version.
+     */
+    public static SessionElements decode(final byte[] data) {
+        if (data.length == 0 || data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported encoding of session elements");
+        }
+        final int[] position = {1};
+        final int elementCount = (int) readVarLong(data, position);
+        final SessionElements elements = new SessionElements(elementCount);
+        long previous = 0;
+        while (elements.elementCount < elementCount) {
+            final int storeCode = data[position[0]++];
+            if (storeCode < 0 || storeCode >= STORE_TYPES.length) {
+                throw new IllegalArgumentException("Unknown store code " + storeCode + " in session elements");
+            }
+            final long runLength = readVarLong(data, position);
+            for (long i = 0; i < runLength; i++) {
+                previous += unZigZag(readVarLong(data, position));
+                elements.addCode(previous, storeCode);
+            }
+        }
+
+        final int textCount = (int) readVarLong(data, position);
+        for (int t = 0; t < textCount; t++) {
+            final int length = (int) readVarLong(data, position);
+            elements.texts.add(new String(data, position[0], length, StandardCharsets.UTF_8));
+            position[0] += length;
+        }
+        return elements;
+    }
+
+    /**
+     * Converts a session value of an older version: ids by store type or display lines by uid type.
+     *
+     * @param map The session value.
+     * @return the converted list.
+     */
+    static SessionElements fromMap(final Map<?, ?> map) {
+        final SessionElements elements = new SessionElements(map.size());
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getKey() instanceof final Long id) {
+                elements.add(id, entry.getValue() instanceof final Store.Type storeType ? storeType : null);
+            } else if (entry.getKey() != null) {
+                elements.addText(entry.getKey().toString());
+            }
+        }
+        return elements;
+    }
+
+    private static int storeCode(final Store.Type storeType) {
+        for (int code = 0; code < STORE_TYPES.length; code++) {
+            if (STORE_TYPES[code] == storeType) {
+                return code;
+            }
+        }
+        throw new IllegalArgumentException("No session code for store type " + storeType);
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= elementCount) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + elementCount + " elements");
+        }
+    }
+
+    /*
+     * Maps signed differences to unsigned values, so small negative differences stay short.
+     */
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /*
+     * Unsigned LEB128, seven bits per byte.
+     */
+    private static void writeVarLong(final ByteArrayOutputStream out, final long value) {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            out.write((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        out.write((int) remaining);
+    }
+
+    private static long readVarLong(final byte[] data, final int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < elementCount; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(ids[i]).append(" (").append(STORE_TYPES[storeCodes[i]]).append(')');
+        }
+        for (final String text : texts) {
+            builder.append(builder.length() > 1 ? ", " : "").append(text);
+        }
+        return builder.append(']').toString();
+    }
+}
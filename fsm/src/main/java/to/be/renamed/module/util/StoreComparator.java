@@ -29,6 +29,13 @@ import de.espirit.or.schema.Entity;
 
 import java.util.Comparator;
 
+/**
+ * Orders release objects by store: media store elements first, then page store elements, then site store elements and all others.
+ *
+ * @deprecated The release orders its elements with a dependency-aware order that computes the sort key of each element once. This
+ * comparator is no longer used by the module.
+ */
+@Deprecated
 public class StoreComparator implements Comparator<Object> {
 
     @Override
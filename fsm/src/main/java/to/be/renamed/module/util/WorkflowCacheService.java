@@ -0,0 +1,164 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.Store;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Caches of the workflows that are kept across workflow steps and users, hosted by the {@link WorkflowCacheServiceImpl} service of the
+ * module. Entries are kept per project. Data that belongs to an element is kept per element revision, data that changes with other
+ * elements per change epoch (incoming references) or per revision of the project (form validation results). The caches share a
+ * memory budget, least recently used entries are evicted first.
+ */
+public interface WorkflowCacheService {
+
+    /**
+     * Gets the outgoing references of an element, as read by the loader.
+     *
+     * @param element the element, not cached if it has no revision
+     * @param loader  reads the references if they are not cached
+     * @return the references of the element revision.
+     */
+    OutgoingReferences getOutgoingReferences(IDProvider element, Supplier<OutgoingReferences> loader);
+
+    /**
+     * Gets the ids of the elements that reference an element, as read by the loader. Entries are only used for the epoch they were read in
+     * and expire after a short time, as they also change when other elements change.
+     *
+     * @param element the element
+     * @param epoch   the change epoch of the project, e.g. the sequence of its {@link ChangeEventBus}
+     * @param refresh true to call the loader even if the ids are cached, e.g. before deleting elements
+     * @param loader  reads the ids if they are not cached or refreshed
+     * @return the ids of the referencing elements. The array must not be modified.
+     */
+    long[] getIncomingReferenceIds(IDProvider element, long epoch, boolean refresh, Supplier<long[]> loader);
+
+    /**
+     * Gets the result of the release validation of an element form, as computed by the loader. The result also depends on templates, schemas
+     * and other elements, so an entry is only used for the project revision it was computed in.
+     *
+     * @param element    the element
+     * @param revisionId the id of the project revision the form is validated in
+     * @param languages  the abbreviations of the languages the form is validated in
+     * @param loader     validates the form if the result is not cached
+     * @return the error message, empty if the form is valid.
+     */
+    Optional<String> getValidationResult(IDProvider element, long revisionId, String languages, Supplier<Optional<String>> loader);
+
+    /**
+     * Removes all entries of a project.
+     *
+     * @param projectId the id of the project
+     */
+    void clear(long projectId);
+
+    /**
+     * Gets the current statistics of the caches.
+     *
+     * @return the statistics, one per cache.
+     */
+    List<Statistics> getStatistics();
+
+    /**
+     * The outgoing references of an element revision, with the id, the store and the kind of every referenced element, so the referenced
+     * elements can be looked up without reading the references again. The arrays must not be modified.
+     *
+     * @param ids        The ids of the referenced elements, -1 for references without an element.
+     * @param attributes The store type ordinal of every referenced element in the lowest byte, combined with the flags.
+     */
+    record OutgoingReferences(long[] ids, int[] attributes) {
+
+        /**
+         * Flag of a reference to the media store.
+         */
+        public static final int MEDIA = 1 << 8;
+
+        /**
+         * Flag of a reference to a template store element.
+         */
+        public static final int TEMPLATE = 1 << 9;
+
+        /**
+         * Flag of a reference that does not target an element, e.g. a reference to an entity or a broken reference.
+         */
+        public static final int NO_ELEMENT = 1 << 10;
+
+        private static final int STORE_TYPE_MASK = 0xFF;
+        private static final Store.Type[] STORE_TYPES = Store.Type.values();
+
+        /**
+         * Combines the store type of a referenced element with the flags of its reference.
+         *
+         * @param storeType the store type of the referenced element, null if there is no element
+         * @param flags     the flags of the reference
+         * @return the attributes of the reference.
+         */
+        public static int attributes(final Store.Type storeType, final int flags) {
+            return storeType == null ? flags | NO_ELEMENT : flags | storeType.ordinal();
+        }
+
+        /**
+         * Gets the number of references.
+         *
+         * @return the number of references.
+         */
+        public int size() {
+            return ids.length;
+        }
+
+        /**
+         * Checks a flag of a reference.
+         *
+         * @param index the index of the reference
+         * @param flag  the flag to check
+         * @return true if the flag is set.
+         */
+        public boolean is(final int index, final int flag) {
+            return (attributes[index] & flag) != 0;
+        }
+
+        /**
+         * Gets the store type of a referenced element.
+         *
+         * @param index the index of the reference
+         * @return the store type, null for references without an element.
+         */
+        public Store.Type getStoreType(final int index) {
+            return is(index, NO_ELEMENT) ? null : STORE_TYPES[attributes[index] & STORE_TYPE_MASK];
+        }
+    }
+
+    /**
+     * The statistics of a cache since the service was started.
+     *
+     * @param name      The name of the cache.
+     * @param entries   The number of entries.
+     * @param bytes     The estimated memory used by the entries.
+     * @param hits      The number of lookups answered from the cache.
+     * @param misses    The number of lookups that called the loader.
+     * @param evictions The number of entries removed to stay within the memory budget.
+     */
+    record Statistics(String name, int entries, long bytes, long hits, long misses, long evictions) {
+
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import com.espirit.moddev.components.annotations.ServiceComponent;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.module.ServerEnvironment;
+import de.espirit.firstspirit.module.Service;
+import de.espirit.firstspirit.module.ServiceProxy;
+import de.espirit.firstspirit.module.descriptor.ServiceDescriptor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Service that hosts the caches of the workflows, see {@link WorkflowCacheService}. The caches are created when the service starts and
+ * dropped when it stops. The workflows log the statistics at the end of each run (see {@link WorkflowRunContext#logCacheStatistics()}), the
+ * service logs them on stop. The memory budget of all caches is {@value #DEFAULT_MEMORY_BUDGET} bytes,
+ * configurable with the system property {@value #MEMORY_BUDGET_PROPERTY}. Incoming references expire after
+ * {@value #DEFAULT_INCOMING_REFERENCES_TTL_MILLIS} ms (system property {@value #INCOMING_REFERENCES_TTL_PROPERTY}). While the service is
+ * stopped, lookups call the loader directly.
+ */
+@ServiceComponent(name = "BasicWorkflows Cache Service", displayName = "BasicWorkflows Cache Service",
+    description = "Caches of the BasicWorkflows that are kept across workflow steps.")
+public class WorkflowCacheServiceImpl implements Service<WorkflowCacheService>, WorkflowCacheService {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = WorkflowCacheServiceImpl.class;
+
+    /**
+     * System property for the memory budget of all caches in bytes.
+     */
+    public static final String MEMORY_BUDGET_PROPERTY = "basicworkflows.cache.memoryBudget";
+
+    /**
+     * Memory budget of all caches in bytes if the system property is not set.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+
+    /**
+     * System property for the time in milliseconds the incoming references of an element are cached.
+     */
+    public static final String INCOMING_REFERENCES_TTL_PROPERTY = "basicworkflows.incomingReferences.ttl";
+
+    /**
+     * Time in milliseconds the incoming references of an element are cached if the system property is not set.
+     */
+    public static final long DEFAULT_INCOMING_REFERENCES_TTL_MILLIS = 10_000L;
+
+    /**
+     * Name of the cache of the outgoing references.
+     */
+    private static final String OUTGOING_REFERENCES = "outgoingReferences";
+
+    /**
+     * Name of the cache of the incoming references.
+     */
+    private static final String INCOMING_REFERENCES = "incomingReferences";
+
+    /**
+     * Name of the cache of the form validation results.
+     */
+    private static final String VALIDATION_RESULTS = "validationResults";
+
+    /**
+     * Estimated memory of an entry without its key and value.
+     */
+    private static final long ENTRY_OVERHEAD = 96;
+
+    private volatile BoundedCache<OutgoingReferences> outgoingReferences;
+    private volatile BoundedCache<long[]> incomingReferences;
+    private volatile BoundedCache<Optional<String>> validationResults;
+
+    @Override
+    public void init(final ServiceDescriptor descriptor, final ServerEnvironment environment) {
+        //not needed here
+    }
+
+    @Override
+    public void installed() {
+        //not needed here
+    }
+
+    @Override
+    public void uninstalling() {
+        //not needed here
+    }
+
+    @Override
+    public void updated(final String oldVersionString) {
+        //not needed here
+    }
+
+    @Override
+    public void start() {
+        final long memoryBudget = Long.getLong(MEMORY_BUDGET_PROPERTY, DEFAULT_MEMORY_BUDGET);
+        // the incoming references and validation results change more often and get a smaller share of the budget
+        outgoingReferences = new BoundedCache<>(OUTGOING_REFERENCES, memoryBudget / 2, references -> 12L * references.size());
+        incomingReferences = new BoundedCache<>(INCOMING_REFERENCES, memoryBudget / 4, ids -> 8L * ids.length);
+        validationResults = new BoundedCache<>(VALIDATION_RESULTS, memoryBudget / 4, result -> 2L * result.map(String::length).orElse(0));
+        Logging.logInfo("Started with a memory budget of " + memoryBudget + " bytes", LOGGER);
+    }
+
+    @Override
+    public void stop() {
+        final List<Statistics> statistics = getStatistics();
+        outgoingReferences = null;
+        incomingReferences = null;
+        validationResults = null;
+        Logging.logInfo("Stopped, " + statistics, LOGGER);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return outgoingReferences != null;
+    }
+
+    @Override
+    public Class<? extends WorkflowCacheService> getServiceInterface() {
+        return WorkflowCacheService.class;
+    }
+
+    @Override
+    public Class<? extends ServiceProxy<WorkflowCacheService>> getProxyClass() {
+        return null;
+    }
+
+    @Override
+    public OutgoingReferences getOutgoingReferences(final IDProvider element, final Supplier<OutgoingReferences> loader) {
+        final BoundedCache<OutgoingReferences> cache = outgoingReferences;
+        if (cache == null || element.getRevision() == null) {
+            return loader.get();
+        }
+        return cache.get(element.getProject().getId() + ":" + element.getId() + ":" + element.getRevision().getId(), 0, Long.MAX_VALUE, false,
+                         loader);
+    }
+
+    @Override
+    public long[] getIncomingReferenceIds(final IDProvider element, final long epoch, final boolean refresh, final Supplier<long[]> loader) {
+        final BoundedCache<long[]> cache = incomingReferences;
+        final long ttl = Long.getLong(INCOMING_REFERENCES_TTL_PROPERTY, DEFAULT_INCOMING_REFERENCES_TTL_MILLIS);
+        if (cache == null || ttl <= 0) {
+            return loader.get();
+        }
+        return cache.get(element.getProject().getId() + ":" + element.getId(), epoch, ttl, refresh, loader);
+    }
+
+    @Override
+    public Optional<String> getValidationResult(final IDProvider element, final long revisionId, final String languages,
+                                                final Supplier<Optional<String>> loader) {
+        final BoundedCache<Optional<String>> cache = validationResults;
+        if (cache == null) {
+            return loader.get();
+        }
+        // entries of older revisions are replaced by the next lookup of the element
+        final String key = element.getProject().getId() + ":" + element.getStore().getType() + ":" + element.getId() + ":" + languages;
+        return cache.get(key, revisionId, Long.MAX_VALUE, false, loader);
+    }
+
+    @Override
+    public void clear(final long projectId) {
+        for (final BoundedCache<?> cache : getCaches()) {
+            cache.removeProject(projectId + ":");
+        }
+    }
+
+    @Override
+    public List<Statistics> getStatistics() {
+        final List<Statistics> statistics = new ArrayList<>();
+        for (final BoundedCache<?> cache : getCaches()) {
+            statistics.add(cache.getStatistics());
+        }
+        return statistics;
+    }
+
+    private List<BoundedCache<?>> getCaches() {
+        final List<BoundedCache<?>> caches = new ArrayList<>(3);
+        for (final BoundedCache<?> cache : new BoundedCache<?>[]{outgoingReferences, incomingReferences, validationResults}) {
+            if (cache != null) {
+                caches.add(cache);
+            }
+        }
+        return caches;
+    }
+
+    /**
+     * Cache of values by key that evicts the least recently used entries once the estimated memory exceeds the budget. An entry is only used
+     * for the epoch it was read in and until it expires.
+     *
+     * @param <V> The type of the values.
+     */
+    private static final class BoundedCache<V> {
+
+        private final String name;
+        private final long memoryBudget;
+        private final ToLongFunction<V> valueBytes;
+        private final Map<String, CachedValue<V>> entries = new LinkedHashMap<>(256, 0.75f, true);
+        private long bytes;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        private BoundedCache(final String name, final long memoryBudget, final ToLongFunction<V> valueBytes) {
+            this.name = name;
+            this.memoryBudget = memoryBudget;
+            this.valueBytes = valueBytes;
+        }
+
+        V get(final String key, final long epoch, final long ttl, final boolean refresh, final Supplier<V> loader) {
+            final long now = System.currentTimeMillis();
+            synchronized (this) {
+                final CachedValue<V> cachedValue = refresh ? null : entries.get(key);
+                if (cachedValue != null && cachedValue.epoch() == epoch && cachedValue.expires() > now) {
+                    hits++;
+                    return cachedValue.value();
+                }
+                misses++;
+            }
+            // not loaded while holding the lock, so other threads are not blocked while the store is read
+            final V loaded = loader.get();
+            synchronized (this) {
+                final long expires = ttl == Long.MAX_VALUE ? Long.MAX_VALUE : now + ttl;
+                final CachedValue<V> previous = entries.put(key, new CachedValue<>(loaded, epoch, expires));
+                bytes += weight(key, loaded) - (previous == null ? 0 : weight(key, previous.value()));
+                final Iterator<Map.Entry<String, CachedValue<V>>> eldest = entries.entrySet().iterator();
+                while (bytes > memoryBudget && eldest.hasNext()) {
+                    final Map.Entry<String, CachedValue<V>> entry = eldest.next();
+                    bytes -= weight(entry.getKey(), entry.getValue().value());
+                    eldest.remove();
+                    evictions++;
+                }
+            }
+            return loaded;
+        }
+
+        synchronized void removeProject(final String keyPrefix) {
+            final Iterator<Map.Entry<String, CachedValue<V>>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<String, CachedValue<V>> entry = iterator.next();
+                if (entry.getKey().startsWith(keyPrefix)) {
+                    bytes -= weight(entry.getKey(), entry.getValue().value());
+                    iterator.remove();
+                }
+            }
+        }
+
+        synchronized Statistics getStatistics() {
+            return new Statistics(name, entries.size(), bytes, hits, misses, evictions);
+        }
+
+        private long weight(final String key, final V value) {
+            return ENTRY_OVERHEAD + 2L * key.length() + valueBytes.applyAsLong(value);
+        }
+    }
+
+    private record CachedValue<V>(V value, long epoch, long expires) {
+
+    }
+}
@@ -95,4 +95,58 @@ public interface WorkflowConstants {
     String RECURSIVE_FORM_REFNAME = "wf_releaseRecursively";
 
     String WF_OBJECTS_IN_WORKFLOW = "wfObjectsInWorkflow";
+
+    /**
+     * Key that identifies the elements that prevent the delete of the workflow object.
+     */
+    String WF_LOCKED_OBJECTS = "wfLockedObjects";
+
+    /**
+     * Key that identifies the release plan collected by the test release.
+     */
+    String WF_RELEASE_PLAN = "wfReleasePlan";
+
+    /**
+     * Custom attribute for the number of elements released with one release operation.
+     */
+    String WF_RELEASE_BATCH_SIZE = "wfReleaseBatchSize";
+
+    /**
+     * Custom attribute for the number of threads that collect references and validate forms during a release. Opt-in, the default of 1
+     * runs them on the calling thread, see {@link WorkflowRunContext#getParallelism(String)}.
+     */
+    String WF_RELEASE_PARALLELISM = "wfReleaseParallelism";
+
+    /**
+     * Custom attribute for the time limit of the validation of a release in seconds.
+     */
+    String WF_VALIDATION_TIME_LIMIT = "wfValidationTimeLimit";
+
+    /**
+     * Custom attribute for the number of children released together by a recursive release. If set, the children are resolved and
+     * released window by window instead of all at once.
+     */
+    String WF_RELEASE_WINDOW_SIZE = "wfReleaseWindowSize";
+
+    /**
+     * Key that identifies the progress of a recursive release that releases the children window by window.
+     */
+    String WF_RELEASE_PROGRESS = "wfReleaseProgress";
+
+    /**
+     * Custom attribute that enables the incremental recursive release: elements that are released and unchanged are neither validated nor
+     * released again, the changed elements are released one by one instead of the subtree of the start element.
+     */
+    String WF_INCREMENTAL_RELEASE = "wfIncrementalRelease";
+
+    /**
+     * Custom attribute for the maximum number of threads that check the locks of the elements of a delete. Opt-in, the default of 1
+     * checks them on the calling thread, see {@link WorkflowRunContext#getParallelism(String)}.
+     */
+    String WF_LOCK_PROBE_PARALLELISM = "wfLockProbeParallelism";
+
+    /**
+     * Custom attribute for the number of locked elements after which the delete test stops checking further elements.
+     */
+    String WF_LOCK_CONFLICT_LIMIT = "wfLockConflictLimit";
 }
@@ -0,0 +1,261 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import de.espirit.common.base.Logging;
+import de.espirit.firstspirit.access.Language;
+import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
+import de.espirit.firstspirit.agency.OperationAgent;
+import de.espirit.firstspirit.agency.QueryAgent;
+import de.espirit.firstspirit.agency.ServicesBroker;
+import de.espirit.firstspirit.agency.StoreAgent;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * The values of a workflow script context that do not change during one execution of an executable. Specialists, locale, language, labels
+ * and form values are resolved on first access and then kept, so code that runs per element only reads fields. An instance may be used by
+ * several threads.
+ */
+public class WorkflowRunContext {
+
+    /**
+     * The logging class to use.
+     */
+    public static final Class<?> LOGGER = WorkflowRunContext.class;
+
+    /**
+     * Number of threads of the parallel tasks if the workflow does not configure it. The tasks share the connection of the user, so they
+     * only run on several threads if the workflow opts in.
+     */
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    /**
+     * The workflowScriptContext from the workflow.
+     */
+    private final WorkflowScriptContext workflowScriptContext;
+
+    /**
+     * The checkbox values by form field name.
+     */
+    private final Map<String, Boolean> checkboxValues = new HashMap<>();
+
+    /**
+     * The boolean custom attribute values by attribute name.
+     */
+    private final Map<String, Boolean> flagValues = new HashMap<>();
+
+    /**
+     * The positive custom attribute values by attribute name and default value.
+     */
+    private final Map<String, Integer> positiveIntValues = new HashMap<>();
+
+    private StoreAgent storeAgent;
+    private OperationAgent operationAgent;
+    private QueryAgent queryAgent;
+    private FsLocale fsLocale;
+    private Language language;
+    private Language[] languages;
+    private FormEvaluator formEvaluator;
+    private WorkflowCacheService cacheService;
+    private boolean cacheServiceResolved;
+
+    /**
+     * Constructor for WorkflowRunContext.
+     *
+     * @param workflowScriptContext The workflowScriptContext from the workflow.
+     */
+    public WorkflowRunContext(final WorkflowScriptContext workflowScriptContext) {
+        this.workflowScriptContext = workflowScriptContext;
+    }
+
+    /**
+     * Gets the workflowScriptContext of this run.
+     *
+     * @return the workflowScriptContext.
+     */
+    public WorkflowScriptContext getWorkflowScriptContext() {
+        return workflowScriptContext;
+    }
+
+    /**
+     * Gets the store agent.
+     *
+     * @return the store agent.
+     */
+    public synchronized StoreAgent getStoreAgent() {
+        if (storeAgent == null) {
+            storeAgent = workflowScriptContext.requireSpecialist(StoreAgent.TYPE);
+        }
+        return storeAgent;
+    }
+
+    /**
+     * Gets the operation agent.
+     *
+     * @return the operation agent.
+     */
+    public synchronized OperationAgent getOperationAgent() {
+        if (operationAgent == null) {
+            operationAgent = workflowScriptContext.requireSpecialist(OperationAgent.TYPE);
+        }
+        return operationAgent;
+    }
+
+    /**
+     * Gets the query agent.
+     *
+     * @return the query agent.
+     */
+    public synchronized QueryAgent getQueryAgent() {
+        if (queryAgent == null) {
+            queryAgent = workflowScriptContext.requireSpecialist(QueryAgent.TYPE);
+        }
+        return queryAgent;
+    }
+
+    /**
+     * Gets the cache service of the module.
+     *
+     * @return the cache service, null if it is not running.
+     */
+    public synchronized WorkflowCacheService getCacheService() {
+        if (!cacheServiceResolved) {
+            cacheServiceResolved = true;
+            try {
+                cacheService = workflowScriptContext.requireSpecialist(ServicesBroker.TYPE).getService(WorkflowCacheService.class);
+            } catch (final RuntimeException e) {
+                Logging.logDebug("Cache service not available: " + e.getMessage(), LOGGER);
+            }
+        }
+        return cacheService;
+    }
+
+    /**
+     * Logs the statistics of the cache service, if this run used it. The statistics cover all runs since the service was started.
+     */
+    public synchronized void logCacheStatistics() {
+        if (cacheService != null) {
+            Logging.logInfo("Cache service statistics: " + cacheService.getStatistics(), LOGGER);
+        }
+    }
+
+    /**
+     * Gets the locale of the user.
+     *
+     * @return the locale.
+     */
+    public Locale getLocale() {
+        return getFsLocale().get();
+    }
+
+    /**
+     * Gets the project language that matches the locale of the user.
+     *
+     * @return the language.
+     */
+    public synchronized Language getLanguage() {
+        if (language == null) {
+            language = getFsLocale().getLanguage();
+        }
+        return language;
+    }
+
+    /**
+     * Gets the language specific labels for the locale of the user.
+     *
+     * @return the resource bundle.
+     */
+    public ResourceBundle getBundle() {
+        return MessageBundle.get(getLocale());
+    }
+
+    /**
+     * Gets the value of a checkbox of the workflow form.
+     *
+     * @param varname The name of the form field.
+     * @return the value of the checkbox.
+     */
+    public synchronized boolean getCheckboxValue(final String varname) {
+        return checkboxValues.computeIfAbsent(varname, name -> getFormEvaluator().getCheckboxValue(name));
+    }
+
+    /**
+     * Gets the value of a boolean custom attribute of the task.
+     *
+     * @param varname The name of the custom attribute.
+     * @return true if the attribute is set to true.
+     */
+    public synchronized boolean getFlagValue(final String varname) {
+        return flagValues.computeIfAbsent(varname, name -> getFormEvaluator().getFlagValue(name));
+    }
+
+    /**
+     * Gets the positive number of a custom attribute of the task.
+     *
+     * @param varname      The name of the custom attribute.
+     * @param defaultValue The value used if the attribute is not set or no positive number.
+     * @return the value of the attribute.
+     */
+    public synchronized int getPositiveIntValue(final String varname, final int defaultValue) {
+        return positiveIntValues.computeIfAbsent(varname + ":" + defaultValue, key -> getFormEvaluator().getPositiveIntValue(varname, defaultValue));
+    }
+
+    /**
+     * Gets the maximum number of threads of parallel tasks from a custom attribute of the task.
+     * <p>
+     * Parallel tasks call the store and reference API of FirstSpirit from several threads with the connection of the user. This assumes
+     * the connection supports concurrent read calls, which the API does not guarantee. A workflow therefore has to opt in by setting the
+     * attribute to a value greater than 1; without it all tasks run on the calling thread.
+     *
+     * @param varname The name of the custom attribute.
+     * @return the maximum number of threads, {@value #DEFAULT_PARALLELISM} if the attribute is not set.
+     */
+    public int getParallelism(final String varname) {
+        return getPositiveIntValue(varname, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Gets the languages selected in the workflow form.
+     *
+     * @return the languages, all languages if the array is empty. The array must not be modified.
+     */
+    public synchronized Language[] getLanguages() {
+        if (languages == null) {
+            languages = getFormEvaluator().getLanguages();
+        }
+        return languages;
+    }
+
+    private synchronized FsLocale getFsLocale() {
+        if (fsLocale == null) {
+            fsLocale = new FsLocale(workflowScriptContext);
+        }
+        return fsLocale;
+    }
+
+    private synchronized FormEvaluator getFormEvaluator() {
+        if (formEvaluator == null) {
+            formEvaluator = new FormEvaluator(workflowScriptContext);
+        }
+        return formEvaluator;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.release;
+
+import de.espirit.firstspirit.access.store.Store;
+import de.espirit.firstspirit.access.store.contentstore.Content2;
+import de.espirit.firstspirit.access.store.contentstore.ContentStoreRoot;
+import de.espirit.firstspirit.access.store.templatestore.WorkflowScriptContext;
+import de.espirit.firstspirit.agency.StoreAgent;
+import de.espirit.or.schema.Entity;
+import de.espirit.or.schema.EntityType;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class Content2IndexTest {
+
+    private final List<Content2> dataSources = new ArrayList<>();
+    private final AtomicInteger walks = new AtomicInteger();
+    private Content2Index index;
+
+    @BeforeEach
+    void createIndex() {
+        final ContentStoreRoot contentStoreRoot = mock(ContentStoreRoot.class, RETURNS_DEEP_STUBS);
+        when(contentStoreRoot.getChildren(Content2.class, true).iterator()).thenAnswer(invocation -> {
+            walks.incrementAndGet();
+            return dataSources.iterator();
+        });
+        final StoreAgent storeAgent = mock(StoreAgent.class);
+        when(storeAgent.getStore(Store.Type.CONTENTSTORE)).thenReturn(contentStoreRoot);
+        final WorkflowScriptContext workflowScriptContext = mock(WorkflowScriptContext.class);
+        when(workflowScriptContext.requireSpecialist(StoreAgent.TYPE)).thenReturn(storeAgent);
+        index = new Content2Index(workflowScriptContext);
+    }
+
+    @Test
+    void findsTheDataSourceThatContainsTheEntity() {
+        final EntityType products = entityType("products");
+        final Entity entity = entity(products);
+        final Content2 otherProducts = dataSource(products, null);
+        final Content2 containingProducts = dataSource(products, entity);
+
+        assertSame(containingProducts, index.getContent2ForEntity(entity));
+        verify(otherProducts).getEntity(entity.getKeyValue());
+    }
+
+    @Test
+    void looksOnlyAtDataSourcesOfTheEntityType() {
+        final EntityType products = entityType("products");
+        final Entity entity = entity(products);
+        final Content2 news = dataSource(entityType("news"), null);
+        final Content2 containingProducts = dataSource(products, entity);
+
+        assertSame(containingProducts, index.getContent2ForEntity(entity));
+        verify(news, never()).getEntity(entity.getKeyValue());
+    }
+
+    @Test
+    void returnsNullIfNoDataSourceContainsTheEntity() {
+        final EntityType products = entityType("products");
+        dataSource(products, null);
+
+        assertNull(index.getContent2ForEntity(entity(products)));
+        assertNull(index.getContent2ForEntity(entity(entityType("news"))));
+    }
+
+    @Test
+    void walksTheContentStoreOnce() {
+        final EntityType products = entityType("products");
+        final Entity entity = entity(products);
+        dataSource(products, entity);
+
+        index.getContent2ForEntity(entity);
+        index.getContent2ForEntity(entity(entityType("news")));
+
+        assertEquals(1, walks.get());
+    }
+
+    private static EntityType entityType(final String name) {
+        final EntityType entityType = mock(EntityType.class);
+        when(entityType.getName()).thenReturn(name);
+        return entityType;
+    }
+
+    private static Entity entity(final EntityType entityType) {
+        final Entity entity = mock(Entity.class);
+        when(entity.getEntityType()).thenReturn(entityType);
+        return entity;
+    }
+
+    private Content2 dataSource(final EntityType entityType, final Entity entity) {
+        final Content2 content2 = mock(Content2.class);
+        when(content2.getEntityType()).thenReturn(entityType);
+        if (entity != null) {
+            when(content2.getEntity(entity.getKeyValue())).thenReturn(entity);
+        }
+        dataSources.add(content2);
+        return content2;
+    }
+}
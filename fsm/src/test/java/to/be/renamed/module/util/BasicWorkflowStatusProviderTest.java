@@ -0,0 +1,148 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+
+import de.espirit.firstspirit.access.Language;
+import de.espirit.firstspirit.access.Revision;
+import de.espirit.firstspirit.access.project.Project;
+import de.espirit.firstspirit.access.store.IDProvider;
+import de.espirit.firstspirit.access.store.pagestore.Page;
+import de.espirit.firstspirit.access.store.sitestore.PageRef;
+import de.espirit.firstspirit.workflow.WebeditElementStatusProviderPlugin.State;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BasicWorkflowStatusProviderTest {
+
+    /**
+     * The release states are cached per JVM, so every test uses its own project.
+     */
+    private static final AtomicLong PROJECT_IDS = new AtomicLong(-2_000_000);
+
+    /**
+     * The element ids, unique per JVM like the project ids.
+     */
+    private static final AtomicLong ELEMENT_IDS = new AtomicLong();
+
+    private final BasicWorkflowStatusProvider statusProvider = new BasicWorkflowStatusProvider();
+
+    @Test
+    void checksSharedParentsOnce() {
+        final IDProvider folder = element(IDProvider.CHANGED, null);
+        when(folder.getUid()).thenReturn("folder");
+        final IDProvider first = element(IDProvider.RELEASED, folder);
+        final IDProvider second = element(IDProvider.RELEASED, folder);
+
+        final Map<IDProvider, State> states = statusProvider.getReleaseStates(List.of(first, second), null);
+
+        assertEquals(State.CHANGED, states.get(first));
+        assertEquals(State.CHANGED, states.get(second));
+        verify(folder, times(1)).isInReleaseStore();
+        verify(folder, times(1)).getReleaseStatus();
+    }
+
+    @Test
+    void checksSharedPagesOnce() {
+        final IDProvider root = element(IDProvider.RELEASED, null);
+        when(root.getUid()).thenReturn("root");
+        final Page page = mock(Page.class);
+        when(page.isReleaseSupported()).thenReturn(true);
+        when(page.getReleaseStatus()).thenReturn(IDProvider.CHANGED);
+        final PageRef first = pageRef(page, root);
+        final PageRef second = pageRef(page, root);
+
+        final Map<IDProvider, State> states = statusProvider.getReleaseStates(List.of(first, second), null);
+
+        assertEquals(State.CHANGED, states.get(first));
+        assertEquals(State.CHANGED, states.get(second));
+        verify(page, times(1)).getReleaseStatus();
+    }
+
+    @Test
+    void showsElementsWithTaskInWorkflow() {
+        final IDProvider element = element(IDProvider.RELEASED, null);
+        when(element.hasTask()).thenReturn(true);
+
+        assertEquals(State.IN_WORKFLOW, statusProvider.getReleaseState(element));
+    }
+
+    @Test
+    void computesOnlyTheRequestedLanguages() {
+        final Language german = language("DE");
+        final Language english = language("EN");
+        final Project project = project(german, english);
+        final IDProvider element = element(IDProvider.RELEASED, null);
+        when(element.getProject()).thenReturn(project);
+        final Revision revision = mock(Revision.class);
+        when(revision.getId()).thenReturn(1L);
+        when(element.getRevision()).thenReturn(revision);
+
+        assertEquals(State.RELEASED, statusProvider.getReleaseState(element, german));
+        verify(element, never()).getReleaseStatus(english);
+
+        assertEquals(State.RELEASED, statusProvider.getReleaseState(element, english));
+        assertEquals(State.RELEASED, statusProvider.getReleaseState(element, german));
+        verify(element, times(1)).getReleaseStatus(german);
+        verify(element, times(1)).getReleaseStatus(english);
+    }
+
+    private static IDProvider element(final int releaseStatus, final IDProvider parent) {
+        return stub(mock(IDProvider.class), releaseStatus, parent);
+    }
+
+    private static PageRef pageRef(final Page page, final IDProvider parent) {
+        final PageRef pageRef = stub(mock(PageRef.class), IDProvider.RELEASED, parent);
+        when(pageRef.getPage()).thenReturn(page);
+        return pageRef;
+    }
+
+    private static <T extends IDProvider> T stub(final T element, final int releaseStatus, final IDProvider parent) {
+        when(element.getId()).thenReturn(ELEMENT_IDS.incrementAndGet());
+        when(element.isReleaseSupported()).thenReturn(true);
+        when(element.getReleaseStatus()).thenReturn(releaseStatus);
+        when(element.getReleaseStatus(any(Language.class))).thenReturn(releaseStatus);
+        when(element.getParent()).thenReturn(parent);
+        return element;
+    }
+
+    private static Language language(final String abbreviation) {
+        final Language language = mock(Language.class);
+        when(language.getAbbreviation()).thenReturn(abbreviation);
+        return language;
+    }
+
+    private static Project project(final Language... languages) {
+        final Project project = mock(Project.class);
+        when(project.getId()).thenReturn(PROJECT_IDS.decrementAndGet());
+        when(project.getLanguages()).thenReturn(List.of(languages));
+        return project;
+    }
+}
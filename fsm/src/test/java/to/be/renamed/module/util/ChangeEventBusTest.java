@@ -0,0 +1,182 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeEventBusTest {
+
+    /**
+     * The buses are kept per JVM, so every test uses its own project ids.
+     */
+    private static final AtomicLong PROJECT_IDS = new AtomicLong(-1_000_000);
+
+    /**
+     * The sources a test registered, removed again after the test.
+     */
+    private final List<InMemorySource> sources = new ArrayList<>();
+
+    @AfterEach
+    void removeSources() {
+        sources.forEach(ChangeEventBus::removeSource);
+    }
+
+    @Test
+    void subscribesBusesToSources() {
+        final long existingProjectId = PROJECT_IDS.decrementAndGet();
+        final ChangeEventBus existingBus = ChangeEventBus.forProject(existingProjectId);
+        final InMemorySource source = addSource();
+        final long newProjectId = PROJECT_IDS.decrementAndGet();
+        final ChangeEventBus newBus = ChangeEventBus.forProject(newProjectId);
+
+        assertSame(existingBus, source.buses.get(existingProjectId));
+        assertSame(newBus, source.buses.get(newProjectId));
+        assertSame(newBus, ChangeEventBus.forProject(newProjectId));
+    }
+
+    @Test
+    void reportsChangedElements() {
+        final long projectId = PROJECT_IDS.decrementAndGet();
+        final InMemorySource source = addSource();
+        final ChangeEventBus bus = ChangeEventBus.forProject(projectId);
+        final long since = bus.getSequence();
+
+        source.changed(projectId, 42, 2, 1);
+
+        assertTrue(bus.getSequence() > since);
+        assertTrue(bus.hasChangedSince(42, since));
+        assertFalse(bus.hasChangedSince(2, since));
+        assertFalse(bus.hasChangedSince(43, since));
+        assertFalse(bus.hasChangedSince(42, bus.getSequence()));
+    }
+
+    @Test
+    void reportsChangedSubtrees() {
+        final long projectId = PROJECT_IDS.decrementAndGet();
+        final InMemorySource source = addSource();
+        final ChangeEventBus bus = ChangeEventBus.forProject(projectId);
+        final long since = bus.getSequence();
+
+        source.changed(projectId, 42, 2, 1);
+
+        assertTrue(bus.hasSubtreeChangedSince(42, since));
+        assertTrue(bus.hasSubtreeChangedSince(2, since));
+        assertTrue(bus.hasSubtreeChangedSince(1, since));
+        assertFalse(bus.hasSubtreeChangedSince(3, since));
+    }
+
+    @Test
+    void reportsAllChanged() {
+        final long projectId = PROJECT_IDS.decrementAndGet();
+        final InMemorySource source = addSource();
+        final ChangeEventBus bus = ChangeEventBus.forProject(projectId);
+        source.changed(projectId, 42);
+        final long since = bus.getSequence();
+
+        source.buses.get(projectId).allChanged();
+
+        assertTrue(bus.hasChangedSince(43, since));
+        assertTrue(bus.hasSubtreeChangedSince(43, since));
+        assertFalse(bus.hasChangedSince(43, bus.getSequence()));
+    }
+
+    @Test
+    void keepsProjectsApart() {
+        final long projectId = PROJECT_IDS.decrementAndGet();
+        final long otherProjectId = PROJECT_IDS.decrementAndGet();
+        final InMemorySource source = addSource();
+        final ChangeEventBus otherBus = ChangeEventBus.forProject(otherProjectId);
+        ChangeEventBus.forProject(projectId);
+        final long since = otherBus.getSequence();
+
+        source.changed(projectId, 42);
+
+        assertEquals(since, otherBus.getSequence());
+        assertFalse(otherBus.hasChangedSince(42, since));
+    }
+
+    @Test
+    void clearsTableOfTooManyChangedElements() {
+        final long projectId = PROJECT_IDS.decrementAndGet();
+        final InMemorySource source = addSource();
+        final ChangeEventBus bus = ChangeEventBus.forProject(projectId);
+        final long since = bus.getSequence();
+
+        for (long id = 1; id <= 100_001; id++) {
+            source.changed(projectId, id);
+        }
+
+        assertTrue(bus.hasChangedSince(1, since));
+        assertTrue(bus.hasChangedSince(200_000, since));
+        assertTrue(bus.hasChangedSince(100_001, bus.getSequence() - 1));
+        assertFalse(bus.hasChangedSince(1, bus.getSequence() - 1));
+    }
+
+    @Test
+    void reportsElementsChangedTogether() {
+        final long projectId = PROJECT_IDS.decrementAndGet();
+        final InMemorySource source = addSource();
+        final ChangeEventBus bus = ChangeEventBus.forProject(projectId);
+        final long since = bus.getSequence();
+
+        source.buses.get(projectId).elementsChanged(new long[]{42, 43}, 2, 1);
+
+        assertEquals(since + 1, bus.getSequence());
+        assertTrue(bus.hasChangedSince(42, since));
+        assertTrue(bus.hasChangedSince(43, since));
+        assertFalse(bus.hasChangedSince(2, since));
+        assertTrue(bus.hasSubtreeChangedSince(2, since));
+        assertTrue(bus.hasSubtreeChangedSince(43, since));
+    }
+
+    private InMemorySource addSource() {
+        final InMemorySource source = new InMemorySource();
+        ChangeEventBus.addSource(source);
+        sources.add(source);
+        return source;
+    }
+
+    /**
+     * Source that reports the changes a test makes.
+     */
+    private static final class InMemorySource implements ChangeEventSource {
+
+        private final Map<Long, ChangeEventBus> buses = new HashMap<>();
+
+        @Override
+        public void subscribe(final long projectId, final ChangeEventBus bus) {
+            buses.put(projectId, bus);
+        }
+
+        private void changed(final long projectId, final long elementId, final long... ancestorIds) {
+            buses.get(projectId).elementChanged(elementId, ancestorIds);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * BasicWorkflows Module
+ * %%
+ * Copyright (C) 2012 - 2023 Crownpeak Technology GmbH - https://www.crownpeak.com
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package to.be.renamed.module.util;
+
+
+import de.espirit.firstspirit.access.store.Store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SessionElementsTest {
+
+    @Test
+    void decodesElementsInTheOrderTheyWereAdded() {
+        final SessionElements elements = new SessionElements();
+        elements.add(300, Store.Type.PAGESTORE);
+        elements.add(7, Store.Type.SITESTORE);
+        elements.add(12, Store.Type.PAGESTORE);
+        elements.add(5, Store.Type.PAGESTORE);
+        elements.addText("Entity 1 (products)");
+
+        final SessionElements decoded = SessionElements.decode(elements.encode());
+
+        assertElements(decoded, new long[]{300, 7, 12, 5},
+                       new Store.Type[]{Store.Type.PAGESTORE, Store.Type.SITESTORE, Store.Type.PAGESTORE, Store.Type.PAGESTORE});
+        assertEquals(List.of("Entity 1 (products)"), List.copyOf(decoded.getTexts()));
+    }
+
+    @Test
+    void encodingDoesNotChangeTheList() {
+        final SessionElements elements = new SessionElements();
+        elements.add(9, Store.Type.MEDIASTORE);
+        elements.add(2, Store.Type.CONTENTSTORE);
+        elements.add(9, Store.Type.MEDIASTORE);
+
+        final byte[] data = elements.encode();
+
+        assertElements(elements, new long[]{9, 2}, new Store.Type[]{Store.Type.MEDIASTORE, Store.Type.CONTENTSTORE});
+        assertEquals(data.length, elements.encode().length);
+    }
+
+    @Test
+    void keepsElementsAddedTwiceOnce() {
+        final SessionElements elements = new SessionElements();
+        elements.add(1, Store.Type.PAGESTORE);
+        elements.add(1, Store.Type.SITESTORE);
+        elements.add(1, Store.Type.PAGESTORE);
+        final SessionElements other = new SessionElements();
+        other.add(1, Store.Type.SITESTORE);
+        other.add(2, Store.Type.SITESTORE);
+
+        elements.addAll(other);
+
+        assertElements(elements, new long[]{1, 1, 2}, new Store.Type[]{Store.Type.PAGESTORE, Store.Type.SITESTORE, Store.Type.SITESTORE});
+    }
+
+    @Test
+    void keepsElementsWithoutStoreType() {
+        final SessionElements elements = new SessionElements();
+        elements.add(4, null);
+        elements.add(4, Store.Type.GLOBALSTORE);
+
+        final SessionElements decoded = SessionElements.decode(elements.encode());
+
+        assertElements(decoded, new long[]{4, 4}, new Store.Type[]{null, Store.Type.GLOBALSTORE});
+        assertNull(decoded.getStoreType(0));
+    }
+
+    @Test
+    void encodesLargeIdDifferences() {
+        final long[] ids = {0, 127, 128, 16_383, 16_384, -1, Long.MAX_VALUE, Long.MIN_VALUE + 1, 1, Long.MIN_VALUE + 2, Long.MAX_VALUE - 1};
+        final Store.Type[] storeTypes = new Store.Type[ids.length];
+        final SessionElements elements = new SessionElements();
+        for (int i = 0; i < ids.length; i++) {
+            storeTypes[i] = Store.Type.TEMPLATESTORE;
+            elements.add(ids[i], Store.Type.TEMPLATESTORE);
+        }
+
+        assertElements(SessionElements.decode(elements.encode()), ids, storeTypes);
+    }
+
+    @Test
+    void readsMapsOfOlderVersions() {
+        final Map<Object, Object> map = new LinkedHashMap<>();
+        map.put(10L, Store.Type.PAGESTORE);
+        map.put(11L, "unknown");
+        map.put("Page 12 (Home)", "PAGE");
+
+        final SessionElements elements = SessionElements.fromMap(map);
+
+        assertElements(elements, new long[]{10, 11}, new Store.Type[]{Store.Type.PAGESTORE, null});
+        assertEquals(List.of("Page 12 (Home)"), List.copyOf(elements.getTexts()));
+    }
+
+    @Test
+    void rejectsUnknownEncodings() {
+        assertThrows(IllegalArgumentException.class, () -> SessionElements.decode(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> SessionElements.decode(new byte[]{1, 0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> SessionElements.decode(new byte[]{2, 1, 100, 1, 2, 0}));
+    }
+
+    private static void assertElements(final SessionElements elements, final long[] ids, final Store.Type[] storeTypes) {
+        assertEquals(ids.length, elements.getElementCount());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], elements.getId(i));
+            assertEquals(storeTypes[i], elements.getStoreType(i));
+        }
+    }
+}